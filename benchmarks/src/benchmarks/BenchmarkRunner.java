@@ -0,0 +1,37 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every benchmark in this module in steady-state throughput mode.<p>
+ * Pass "gc" to also run the allocation profiler (the same as -prof gc on the JMH command line),
+ * and optionally a regular expression to pick which benchmarks run, for example "Hunter".
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = "benchmarks\\..*Benchmark";
+        boolean profileGc = false;
+        for (String arg : args) {
+            if (arg.equals("gc")) {
+                profileGc = true;
+            } else {
+                include = arg;
+            }
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.MICROSECONDS);
+        if (profileGc) {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,216 @@
+package benchmarks;
+
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * The benchmarks' way into the game classes.<p>
+ * The game lives in the unnamed package, which Java won't let a named package import, and JMH won't
+ * generate code for benchmarks in the unnamed package. So the benchmarks call the game through
+ * constant MethodHandles instead; because they are static final, the JIT inlines them just like
+ * direct calls and they don't show up in the numbers.<p>
+ * Anything here is looked up by name when the class loads, so if a game method changes its name or
+ * parameters this class has to change with it.
+ */
+final class Game {
+    // constants
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+    private static final Class<?> GAME_INPUT = type("GameInput");
+    private static final Class<?> GAME_OUTPUT = type("GameOutput");
+    private static final Class<?> GAME_SESSION = type("GameSession");
+    private static final Class<?> HUNTER = type("Hunter");
+    private static final Class<?> SHOP = type("Shop");
+    private static final Class<?> TOWN = type("Town");
+    private static final Class<?> ITEM = type("Item");
+
+    private static final MethodHandle NEW_SCANNER_INPUT = constructor(type("ScannerInput"), InputStream.class);
+    private static final MethodHandle NEW_NULL_OUTPUT = constructor(type("NullOutput"));
+    private static final MethodHandle NEW_SESSION = constructor(GAME_SESSION, GAME_INPUT, GAME_OUTPUT);
+    private static final MethodHandle NEW_HUNTER = constructor(HUNTER, String.class, int.class, GAME_SESSION);
+    private static final MethodHandle NEW_SHOP = constructor(SHOP, double.class, GAME_SESSION);
+    private static final MethodHandle NEW_TOWN = constructor(TOWN, SHOP, double.class, GAME_SESSION);
+
+    private static final MethodHandle ITEM_FOR_NAME = staticMethod(ITEM, "forName", ITEM, String.class);
+    private static final MethodHandle HAS_ITEM_IN_KIT = method(HUNTER, "hasItemInKit", boolean.class, String.class);
+    private static final MethodHandle ADD_ITEM = method(HUNTER, "addItem", boolean.class, String.class);
+    private static final MethodHandle REMOVE_ITEM_FROM_KIT = method(HUNTER, "removeItemFromKit", void.class, String.class);
+    // the typed versions the game itself calls every turn; the String ones above look the name up first
+    private static final MethodHandle HAS_TYPED_ITEM_IN_KIT = method(HUNTER, "hasItemInKit", boolean.class, ITEM);
+    private static final MethodHandle ADD_TYPED_ITEM = method(HUNTER, "addItem", boolean.class, ITEM);
+    private static final MethodHandle REMOVE_TYPED_ITEM_FROM_KIT = method(HUNTER, "removeItemFromKit", void.class, ITEM);
+    private static final MethodHandle CHANGE_GOLD = method(HUNTER, "changeGold", void.class, int.class);
+    private static final MethodHandle GET_GOLD = method(HUNTER, "getGold", int.class);
+    private static final MethodHandle GET_INVENTORY = method(HUNTER, "getInventory", String.class);
+    private static final MethodHandle HUNTER_INFO_STRING = method(HUNTER, "infoString", String.class);
+    private static final MethodHandle SHOP_INVENTORY = method(SHOP, "inventory", String.class);
+    private static final MethodHandle GET_COST_OF_ITEM = method(SHOP, "getCostOfItem", int.class, String.class);
+    private static final MethodHandle GET_COST_OF_TYPED_ITEM = method(SHOP, "getCostOfItem", int.class, ITEM);
+    private static final MethodHandle HUNTER_ARRIVES = method(TOWN, "hunterArrives", void.class, HUNTER);
+    private static final MethodHandle LOOK_FOR_TROUBLE = method(TOWN, "lookForTrouble", void.class);
+    private static final MethodHandle LEAVE_TOWN = method(TOWN, "leaveTown", boolean.class);
+    private static final MethodHandle GET_TERRAIN = method(TOWN, "getTerrain", type("Terrain"));
+    private static final MethodHandle GET_NEEDED_ITEM = method(type("Terrain"), "getNeededItem", String.class);
+
+    private Game() {
+    }
+
+    /**
+     * @return A session with no input and no output, ready for a hunter and a town.
+     */
+    static Object newSession() throws Throwable {
+        Object input = NEW_SCANNER_INPUT.invokeExact(InputStream.nullInputStream());
+        Object output = NEW_NULL_OUTPUT.invokeExact();
+        return NEW_SESSION.invokeExact(input, output);
+    }
+
+    static Object newHunter(String name, int gold, Object session) throws Throwable {
+        return NEW_HUNTER.invokeExact(name, gold, session);
+    }
+
+    static Object newShop(double markdown, Object session) throws Throwable {
+        return NEW_SHOP.invokeExact(markdown, session);
+    }
+
+    static Object newTown(Object shop, double toughness, Object session) throws Throwable {
+        return NEW_TOWN.invokeExact(shop, toughness, session);
+    }
+
+    /**
+     * @return The Item with that name, or null if there isn't one; pass it to the typed methods.
+     */
+    static Object item(String name) throws Throwable {
+        return ITEM_FOR_NAME.invokeExact(name);
+    }
+
+    static boolean hasItemInKit(Object hunter, Object item) throws Throwable {
+        return (boolean) HAS_TYPED_ITEM_IN_KIT.invokeExact(hunter, item);
+    }
+
+    static boolean addItem(Object hunter, Object item) throws Throwable {
+        return (boolean) ADD_TYPED_ITEM.invokeExact(hunter, item);
+    }
+
+    static void removeItemFromKit(Object hunter, Object item) throws Throwable {
+        REMOVE_TYPED_ITEM_FROM_KIT.invokeExact(hunter, item);
+    }
+
+    static int getCostOfItem(Object shop, Object item) throws Throwable {
+        return (int) GET_COST_OF_TYPED_ITEM.invokeExact(shop, item);
+    }
+
+    static boolean hasItemInKit(Object hunter, String item) throws Throwable {
+        return (boolean) HAS_ITEM_IN_KIT.invokeExact(hunter, item);
+    }
+
+    static boolean addItem(Object hunter, String item) throws Throwable {
+        return (boolean) ADD_ITEM.invokeExact(hunter, item);
+    }
+
+    static void removeItemFromKit(Object hunter, String item) throws Throwable {
+        REMOVE_ITEM_FROM_KIT.invokeExact(hunter, item);
+    }
+
+    static void changeGold(Object hunter, int modifier) throws Throwable {
+        CHANGE_GOLD.invokeExact(hunter, modifier);
+    }
+
+    static int getGold(Object hunter) throws Throwable {
+        return (int) GET_GOLD.invokeExact(hunter);
+    }
+
+    static String getInventory(Object hunter) throws Throwable {
+        return (String) GET_INVENTORY.invokeExact(hunter);
+    }
+
+    static String hunterInfoString(Object hunter) throws Throwable {
+        return (String) HUNTER_INFO_STRING.invokeExact(hunter);
+    }
+
+    static String shopInventory(Object shop) throws Throwable {
+        return (String) SHOP_INVENTORY.invokeExact(shop);
+    }
+
+    static int getCostOfItem(Object shop, String item) throws Throwable {
+        return (int) GET_COST_OF_ITEM.invokeExact(shop, item);
+    }
+
+    static void hunterArrives(Object town, Object hunter) throws Throwable {
+        HUNTER_ARRIVES.invokeExact(town, hunter);
+    }
+
+    static void lookForTrouble(Object town) throws Throwable {
+        LOOK_FOR_TROUBLE.invokeExact(town);
+    }
+
+    static boolean leaveTown(Object town) throws Throwable {
+        return (boolean) LEAVE_TOWN.invokeExact(town);
+    }
+
+    static String neededItem(Object town) throws Throwable {
+        Object terrain = GET_TERRAIN.invokeExact(town);
+        return (String) GET_NEEDED_ITEM.invokeExact(terrain);
+    }
+
+    private static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Finds a constructor and erases it to take and return Objects, so it can be called with invokeExact.
+     */
+    private static MethodHandle constructor(Class<?> owner, Class<?>... parameters) {
+        try {
+            MethodHandle handle = LOOKUP.findConstructor(owner, MethodType.methodType(void.class, parameters));
+            return handle.asType(MethodType.methodType(Object.class, primitivesKept(parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Finds a static method and erases any game-class types to Object, the same way method() does.
+     */
+    private static MethodHandle staticMethod(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            MethodHandle handle = LOOKUP.findStatic(owner, name, MethodType.methodType(returnType, parameters));
+            return handle.asType(MethodType.methodType(erase(returnType), primitivesKept(parameters)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Finds an instance method and erases the receiver and any game-class types to Object,
+     * leaving primitives and Strings alone.
+     */
+    private static MethodHandle method(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            MethodHandle handle = LOOKUP.findVirtual(owner, name, MethodType.methodType(returnType, parameters));
+            MethodType erased = MethodType.methodType(erase(returnType), Object.class).appendParameterTypes(primitivesKept(parameters));
+            return handle.asType(erased);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static Class<?>[] primitivesKept(Class<?>[] parameters) {
+        Class<?>[] erased = new Class<?>[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            erased[i] = erase(parameters[i]);
+        }
+        return erased;
+    }
+
+    private static Class<?> erase(Class<?> type) {
+        if (type.isPrimitive() || type == String.class || type.getName().startsWith("java.")) {
+            return type;
+        }
+        return Object.class;
+    }
+}
@@ -0,0 +1,96 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-call cost of the Hunter methods that run on every turn.<p>
+ * The kit is filled to the size given by the "items" param so the linear scans are measured
+ * both near their best case and at a full kit. Each call is measured both ways in: by Item, the way the game
+ * itself calls it every turn, and by name, which looks the Item up first.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HunterBenchmark {
+    private static final String[] ITEMS = {"water", "rope", "machete", "horse", "boat", "boots", "shovel"};
+
+    @Param({"1", "7"})
+    public int items;
+
+    private Object hunter;
+    private String present;
+    private String missing;
+    private Object presentItem;
+    private Object missingItem;
+
+    @Setup
+    public void setUp() throws Throwable {
+        hunter = Game.newHunter("bench", 20, Game.newSession());
+        for (int i = 0; i < items; i++) {
+            Game.addItem(hunter, ITEMS[i]);
+        }
+        present = ITEMS[items - 1];
+        missing = "sword";
+        presentItem = Game.item(present);
+        missingItem = Game.item(missing);
+    }
+
+    @Benchmark
+    public boolean hasItemInKitHit() throws Throwable {
+        return Game.hasItemInKit(hunter, presentItem);
+    }
+
+    @Benchmark
+    public boolean hasItemInKitMiss() throws Throwable {
+        return Game.hasItemInKit(hunter, missingItem);
+    }
+
+    @Benchmark
+    public boolean hasItemInKitHitByName() throws Throwable {
+        return Game.hasItemInKit(hunter, present);
+    }
+
+    @Benchmark
+    public boolean hasItemInKitMissByName() throws Throwable {
+        return Game.hasItemInKit(hunter, missing);
+    }
+
+    /**
+     * Removes and re-adds the last item so the kit stays the same size between calls.
+     */
+    @Benchmark
+    public boolean addItem() throws Throwable {
+        Game.removeItemFromKit(hunter, presentItem);
+        return Game.addItem(hunter, presentItem);
+    }
+
+    @Benchmark
+    public boolean addItemByName() throws Throwable {
+        Game.removeItemFromKit(hunter, present);
+        return Game.addItem(hunter, present);
+    }
+
+    @Benchmark
+    public String getInventory() throws Throwable {
+        return Game.getInventory(hunter);
+    }
+
+    @Benchmark
+    public String infoString() throws Throwable {
+        return Game.hunterInfoString(hunter);
+    }
+}
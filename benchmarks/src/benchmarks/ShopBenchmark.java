@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-call cost of building the shop's price list and looking up an item's price, both by Item (the way
+ * the game calls it) and by name.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShopBenchmark {
+
+    // near the start and end of the catalog, plus an item the shop only sells in samurai mode
+    @Param({"water", "shovel", "sword"})
+    public String item;
+
+    private Object shop;
+    private Object typedItem;
+
+    @Setup
+    public void setUp() throws Throwable {
+        shop = Game.newShop(0.5, Game.newSession());
+        typedItem = Game.item(item);
+    }
+
+    @Benchmark
+    public String inventory() throws Throwable {
+        return Game.shopInventory(shop);
+    }
+
+    @Benchmark
+    public int getCostOfItem() throws Throwable {
+        return Game.getCostOfItem(shop, typedItem);
+    }
+
+    @Benchmark
+    public int getCostOfItemByName() throws Throwable {
+        return Game.getCostOfItem(shop, item);
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-call cost of the Town actions that change the hunter's gold and kit.<p>
+ * Neither benchmark lets the game end: gold is topped back up after a lost brawl,
+ * and the terrain's item is handed back whenever it breaks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TownBenchmark {
+    private Object hunter;
+    private Object town;
+    private String neededItem;
+
+    @Setup
+    public void setUp() throws Throwable {
+        Object session = Game.newSession();
+        hunter = Game.newHunter("bench", 20, session);
+        town = Game.newTown(Game.newShop(0.5, session), 0.4, session);
+        Game.hunterArrives(town, hunter);
+        neededItem = Game.neededItem(town);
+    }
+
+    @Benchmark
+    public int lookForTrouble() throws Throwable {
+        Game.lookForTrouble(town);
+        int gold = Game.getGold(hunter);
+        if (gold < 0) {
+            Game.changeGold(hunter, 20 - gold);
+        }
+        return gold;
+    }
+
+    /**
+     * Includes one addItem call, which is a no-op unless the item broke on the last crossing.
+     */
+    @Benchmark
+    public boolean leaveTown() throws Throwable {
+        Game.addItem(hunter, neededItem);
+        return Game.leaveTown(town);
+    }
+}
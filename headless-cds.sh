@@ -0,0 +1,36 @@
+#!/bin/sh
+# Builds the game into out/headless/treasurehunter.jar and makes a class data sharing archive for
+# HeadlessRunner, so the classes a terminal game needs are mapped in already parsed and verified instead
+# of being loaded one by one at startup. Needs JDK 13 or later. Archived classes have to come from a
+# jar, not a directory of class files.
+set -e
+cd "$(dirname "$0")"
+rm -rf out/headless
+mkdir -p out/headless/classes
+# plain StringBuilder concatenation: the invokedynamic kind spins up a method handle per call site
+# the first time it runs, which is most of what a first turn costs
+javac -XDstringConcat=inline -d out/headless/classes src/*.java
+jar --create --file out/headless/treasurehunter.jar -C out/headless/classes .
+
+# a short game that goes through every menu action, so their classes end up in the archive
+cat > out/headless/training.txt <<'SCRIPT'
+cds
+e
+b
+rope
+y
+s
+rope
+y
+d
+l
+h
+e
+m
+x
+SCRIPT
+java -XX:ArchiveClassesAtExit=out/headless/headless.jsa -cp out/headless/treasurehunter.jar \
+    HeadlessRunner --script out/headless/training.txt > /dev/null
+
+echo "Archive written. Play with:"
+echo "  java -XX:SharedArchiveFile=out/headless/headless.jsa -cp out/headless/treasurehunter.jar HeadlessRunner"
@@ -0,0 +1,328 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Plays a whole file of scripted hunters through the game, with no one typing, and writes how each one ended up.<p>
+ * Each line of the hunters file is a hunter's name, a mode answer and the moves to make, separated by
+ * semicolons, for example "bob n b rope; m; h; l; d". A shop move like "b rope" answers the shop's questions
+ * too, the same way a Strategy's moves do. Once a hunter runs out of moves it quits. Blank lines and lines
+ * starting with # are skipped. Every hunter's game gets its own seed from the run's seed, so the same file
+ * and seed always give the same results.<p>
+ * The work is a pipeline: this thread reads and parses hunters in batches, a pool of workers plays the
+ * batches, and a writer thread puts the results back in file order and writes them out. The queues between
+ * them are bounded, and so is the number of batches between being read and being written (the writer may have
+ * to hold some back while an earlier, slower one finishes), so a hunters file of any size goes through in a
+ * fixed amount of memory.<p>
+ * Each result line has the hunter's number in the file, how the game ended, the turns it took, the moves
+ * made, and the hunter's info line as the game shows it (without colors), separated by tabs.
+ * Run it with: java BatchRunner [--rules file] hunters-file results-file [threads] [seed]
+ */
+public class BatchRunner {
+    // constants
+    private static final int HUNTERS_PER_BATCH = 64;
+    private static final int BATCHES_PER_THREAD = 4; // how far reading may run ahead of playing
+    private static final GameOutput NO_OUTPUT = new NullOutput();
+    private static final Batch END = new Batch(-1);
+
+    // instance variables
+    private final int threads;
+    private final long seed;
+    private long hunters;
+    private long commands;
+
+    /**
+     * @param threads How many games to play at once.
+     * @param seed Where every hunter's game seed comes from.
+     */
+    public BatchRunner(int threads, long seed) {
+        this.threads = threads;
+        this.seed = seed;
+        hunters = 0;
+        commands = 0;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> rest = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--rules") && i + 1 < args.length) {
+                RuleBook.reload(Path.of(args[++i]));
+            } else {
+                rest.add(args[i]);
+            }
+        }
+        if (rest.size() < 2) {
+            System.err.println("Run it with: java BatchRunner [--rules file] hunters-file results-file [threads] [seed]");
+            return;
+        }
+        int threads = rest.size() > 2 ? Integer.parseInt(rest.get(2)) : Runtime.getRuntime().availableProcessors();
+        long seed = rest.size() > 3 ? Long.parseLong(rest.get(3)) : System.nanoTime();
+        BatchRunner runner = new BatchRunner(threads, seed);
+        long start = System.nanoTime();
+        runner.run(Path.of(rest.get(0)), Path.of(rest.get(1)));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d hunters, %d commands in %.2f s on %d threads (%.0f commands/sec), seed %d%n",
+                runner.getHunters(), runner.getCommands(), seconds, threads, runner.getCommands() / seconds, seed);
+    }
+
+    /**
+     * Plays every hunter in a file and writes their results.
+     *
+     * @param huntersFile The hunters to play.
+     * @param resultsFile Where to write how they did; replaced if it's already there.
+     */
+    public void run(Path huntersFile, Path resultsFile) throws IOException, InterruptedException {
+        BlockingQueue<Batch> toPlay = new ArrayBlockingQueue<>(threads * BATCHES_PER_THREAD);
+        BlockingQueue<Batch> toWrite = new ArrayBlockingQueue<>(threads * BATCHES_PER_THREAD);
+        // read() takes a permit for each batch and the writer gives it back once the batch is written
+        Semaphore inFlight = new Semaphore(threads * BATCHES_PER_THREAD);
+        Writer writer = new Writer(toWrite, resultsFile, inFlight);
+        Thread writerThread = new Thread(writer, "batch-writer");
+        writerThread.start();
+        try {
+            try (ExecutorService players = Executors.newFixedThreadPool(threads)) {
+                for (int i = 0; i < threads; i++) {
+                    players.submit(() -> {
+                        play(toPlay, toWrite);
+                        return null;
+                    });
+                }
+                try {
+                    read(huntersFile, toPlay, inFlight);
+                } finally {
+                    for (int i = 0; i < threads; i++) {
+                        toPlay.put(END);
+                    }
+                }
+            }
+        } finally {
+            // even if reading failed, let the writer finish what was played so far
+            toWrite.put(END);
+            writerThread.join();
+        }
+        if (writer.failure != null) {
+            throw writer.failure;
+        }
+    }
+
+    /**
+     * @return How many hunters the last run played.
+     */
+    public long getHunters() {
+        return hunters;
+    }
+
+    /**
+     * @return How many moves the hunters actually made in the last run; moves after a game was already
+     * over aren't counted.
+     */
+    public long getCommands() {
+        return commands;
+    }
+
+    /**
+     * The first stage: reads hunters into batches, handing each on as soon as it's full.
+     */
+    private void read(Path huntersFile, BlockingQueue<Batch> toPlay, Semaphore inFlight) throws IOException, InterruptedException {
+        SplittableRandom random = new SplittableRandom(seed);
+        int batchNumber = 0;
+        long number = 0;
+        Batch batch = new Batch(batchNumber++);
+        try (BufferedReader in = Files.newBufferedReader(huntersFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                number++;
+                batch.hunters.add(Hunt.parse(number, line, random.nextLong()));
+                if (batch.hunters.size() == HUNTERS_PER_BATCH) {
+                    inFlight.acquire();
+                    toPlay.put(batch);
+                    batch = new Batch(batchNumber++);
+                }
+            }
+        }
+        if (!batch.hunters.isEmpty()) {
+            inFlight.acquire();
+            toPlay.put(batch);
+        }
+    }
+
+    /**
+     * The second stage, on every worker: plays batches until there are no more.
+     */
+    private void play(BlockingQueue<Batch> toPlay, BlockingQueue<Batch> toWrite) throws InterruptedException {
+        StyledText plain = new StyledText();
+        while (true) {
+            Batch batch = toPlay.take();
+            if (batch == END) {
+                return;
+            }
+            for (Hunt hunt : batch.hunters) {
+                hunt.play(plain);
+            }
+            toWrite.put(batch);
+        }
+    }
+
+    /**
+     * The last stage: writes batches out in the order they were read, holding on to any that finish early.
+     */
+    private final class Writer implements Runnable {
+        private final BlockingQueue<Batch> toWrite;
+        private final Path resultsFile;
+        private final Semaphore inFlight;
+        private IOException failure;
+
+        Writer(BlockingQueue<Batch> toWrite, Path resultsFile, Semaphore inFlight) {
+            this.toWrite = toWrite;
+            this.resultsFile = resultsFile;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public void run() {
+            Map<Integer, Batch> early = new HashMap<>();
+            int next = 0;
+            long hunterCount = 0;
+            long commandCount = 0;
+            try (BufferedWriter out = Files.newBufferedWriter(resultsFile, StandardCharsets.UTF_8)) {
+                while (true) {
+                    Batch batch = toWrite.take();
+                    if (batch == END) {
+                        break;
+                    }
+                    early.put(batch.number, batch);
+                    while ((batch = early.remove(next)) != null) {
+                        for (Hunt hunt : batch.hunters) {
+                            out.write(hunt.result);
+                            out.newLine();
+                            commandCount += hunt.moves;
+                        }
+                        hunterCount += batch.hunters.size();
+                        next++;
+                        inFlight.release();
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+                // keep taking batches, so the workers don't block forever on a full queue or the reader on a permit
+                inFlight.release(early.size());
+                early.clear();
+                drain();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            hunters = hunterCount;
+            commands = commandCount;
+        }
+
+        private void drain() {
+            try {
+                while (toWrite.take() != END) {
+                    inFlight.release(); // throw it away
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Some hunters read from the file together, and then their results.
+     */
+    private static final class Batch {
+        private final int number;
+        private final List<Hunt> hunters;
+
+        Batch(int number) {
+            this.number = number;
+            hunters = new ArrayList<>(HUNTERS_PER_BATCH);
+        }
+    }
+
+    /**
+     * One hunter from the file: who they are, what they'll do, and once played, how it went.
+     */
+    private static final class Hunt implements Strategy {
+        private final long number;
+        private final String name;
+        private final String mode;
+        private final String[] script;
+        private final long seed;
+        private int next;
+        private int moves;
+        private String result;
+
+        private Hunt(long number, String name, String mode, String[] script, long seed) {
+            this.number = number;
+            this.name = name;
+            this.mode = mode;
+            this.script = script;
+            this.seed = seed;
+        }
+
+        /**
+         * @param line "name mode move; move; ...", already trimmed.
+         */
+        static Hunt parse(long number, String line, long seed) throws IOException {
+            String[] parts = line.split("\\s+", 3);
+            if (parts.length < 2) {
+                throw new IOException("Hunter " + number + " needs a name and a mode: " + line);
+            }
+            List<String> moves = new ArrayList<>();
+            if (parts.length == 3) {
+                for (String move : parts[2].split(";")) {
+                    move = move.trim().toLowerCase();
+                    if (!move.isEmpty()) {
+                        moves.add(move);
+                    }
+                }
+            }
+            return new Hunt(number, parts[0], parts[1].toLowerCase(), moves.toArray(new String[0]), seed);
+        }
+
+        @Override
+        public String nextMove(GameSession session) {
+            return next < script.length ? script[next++] : "x";
+        }
+
+        void play(StyledText plain) {
+            // one more turn than the script has moves, for the "x" at the end
+            StrategyInput input = new StrategyInput(this, name, mode, script.length + 1);
+            GameSession session = new GameSession(input, NO_OUTPUT, seed);
+            input.setSession(session);
+            StringBuilder str = new StringBuilder().append(number).append('\t');
+            try {
+                new TreasureHunter(session).play();
+            } catch (RuntimeException e) {
+                // one broken game shouldn't hold up the rest, or leave a gap in the results
+                moves = next;
+                result = str.append("error\t").append(session.getTurns()).append('\t').append(moves).append('\t').append(e).toString();
+                return;
+            }
+            Hunter hunter = session.getHunter();
+            moves = next;
+            String ending = hunter.checkWin() ? "won" : hunter.getGold() < 0 ? "game over" : "quit";
+            str.append(ending).append('\t').append(session.getTurns())
+                    .append('\t').append(moves).append('\t');
+            plain.appendPlain(str, hunter.infoString());
+            result = str.toString();
+        }
+    }
+}
@@ -1,5 +1,9 @@
-import java.awt.*;
-
+/**
+ * The ANSI escape codes messages are colored with.<p>
+ * Put one of these in a message and a reset after the part it colors. Terminal outputs pass them
+ * through, and the other outputs turn them into styles with StyledText, so messages never need to
+ * know where they'll be shown.
+ */
 public class Colors {
 
     public static final String RESET = "\033[0m"; // Reset
@@ -20,7 +24,13 @@ public class Colors {
 
     public static final String WHITE = "\033[0;37m";  // WHITE
 
+    public static final String ORANGE = "\033[38;5;208m"; // ORANGE (256-color terminals)
+
+    /**
+     * @param str Some text about gold.
+     * @return The text in yellow.
+     */
     public static String formatGold(String str) {
-        return Color.YELLOW + str;
+        return YELLOW + str + RESET;
     }
 }
@@ -0,0 +1,72 @@
+import java.io.PrintStream;
+
+/**
+ * A GameOutput that writes to a terminal, for running the game without a window or over SSH.<p>
+ * Styles are shown with ANSI escape codes. Text is collected into a frame and written out in one go when
+ * the game flushes, so a turn costs one write to the terminal instead of one per line (and a script that
+ * plays many turns without waiting costs even fewer).
+ * For streams that aren't a terminal, like a file or a pipe into another program, color can be turned off
+ * and the escape codes are stripped instead.
+ */
+public class ConsoleOutput implements GameOutput {
+    // constants
+    private static final String NEWLINE = System.lineSeparator();
+    private static final int MAX_FRAME = 1 << 16; // write out early rather than hold more than this
+
+    // instance variables
+    private final PrintStream out;
+    private final boolean ansi;
+    private final StringBuilder frame;
+    private final StyledText spans;
+
+    public ConsoleOutput(PrintStream out) {
+        this(out, true);
+    }
+
+    /**
+     * @param out Where to write.
+     * @param ansi Whether to show styles with escape codes, or leave them out.
+     */
+    public ConsoleOutput(PrintStream out, boolean ansi) {
+        this.out = out;
+        this.ansi = ansi;
+        frame = new StringBuilder();
+        spans = new StyledText();
+    }
+
+    @Override
+    public void addTextToWindow(String text, TextStyle style) {
+        if (ansi) {
+            spans.appendAnsi(frame, text, style);
+        } else {
+            spans.appendPlain(frame, text);
+        }
+        frame.append(NEWLINE);
+        if (frame.length() >= MAX_FRAME) {
+            flush();
+        }
+    }
+
+    @Override
+    public void prompt(String text) {
+        if (ansi) {
+            spans.appendAnsi(frame, text, TextStyle.PLAIN);
+        } else {
+            spans.appendPlain(frame, text);
+        }
+    }
+
+    @Override
+    public void clear() {
+        frame.append(NEWLINE);
+    }
+
+    @Override
+    public void flush() {
+        if (frame.length() > 0) {
+            out.append(frame);
+            frame.setLength(0);
+        }
+        out.flush();
+    }
+}
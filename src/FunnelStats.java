@@ -0,0 +1,237 @@
+import java.io.PrintStream;
+
+/**
+ * Funnel numbers for the games in some telemetry: how many hunters ever did each thing, and how much gold
+ * they had when their game ended.<p>
+ * Records are fed in one at a time, in the order they were written, and only the game currently being read
+ * is remembered, so any number of games fit in the same few kilobytes. Everything else is counts, kept
+ * separately for each mode, so stats from different segments merge exactly.
+ */
+public class FunnelStats {
+    // constants
+    private static final int MODES = RuleBook.MODES.length();
+    private static final int ITEMS = Item.VALUES.length;
+    private static final int MIN_GOLD = -1024;
+    private static final int MAX_GOLD = 4095;
+    private static final int[] ENDINGS = {GameTrace.WIN, GameTrace.GAME_OVER, GameTrace.QUIT};
+    private static final int TROUBLE = GameTrace.EVENTS.length; // an extra everDid slot: any kind of looking for trouble
+
+    // instance variables
+    private long records;
+    private long unfinished;
+    private final long[][] endings; // [mode][index in ENDINGS]
+    private final long[][] everBought; // [mode][item]: games that bought one at least once
+    private final long[][] everSold;
+    private final long[][] everBroke;
+    private final long[][] everDid; // [mode][event or TROUBLE]: games with at least one record of that kind
+    private final long[][] finalGold; // [mode * ENDINGS + ending][gold - MIN_GOLD]
+    private final long[] finalTurns; // [mode * ENDINGS + ending]: sum of turns, for the average
+
+    // the game being read
+    private int mode;
+    private boolean inGame;
+    private int bought;
+    private int sold;
+    private int broke;
+    private int did;
+
+    public FunnelStats() {
+        endings = new long[MODES][ENDINGS.length];
+        everBought = new long[MODES][ITEMS];
+        everSold = new long[MODES][ITEMS];
+        everBroke = new long[MODES][ITEMS];
+        everDid = new long[MODES][TROUBLE + 1];
+        finalGold = new long[MODES * ENDINGS.length][MAX_GOLD - MIN_GOLD + 1];
+        finalTurns = new long[MODES * ENDINGS.length];
+    }
+
+    /**
+     * Adds the next record.
+     *
+     * @param mode The game's mode, as an index into RuleBook.MODES.
+     * @param turn The turn it happened on.
+     * @param event One of the GameTrace event constants.
+     * @param gold The hunter's gold afterwards.
+     * @param item The item's ordinal, or GameTrace.NONE.
+     */
+    public void add(int mode, int turn, int event, int gold, int item) {
+        records++;
+        if (event == GameTrace.START) {
+            if (inGame) {
+                unfinished++;
+            }
+            this.mode = mode;
+            inGame = true;
+            bought = 0;
+            sold = 0;
+            broke = 0;
+            did = 0;
+        } else if (!inGame) {
+            return; // the rest of a game whose start was lost
+        }
+        did |= 1 << event;
+        if (event == GameTrace.NO_TROUBLE || event == GameTrace.BRAWL_WON || event == GameTrace.BRAWL_LOST) {
+            did |= 1 << TROUBLE;
+        }
+        if (item != GameTrace.NONE) {
+            if (event == GameTrace.BUY) {
+                bought |= 1 << item;
+            } else if (event == GameTrace.SELL) {
+                sold |= 1 << item;
+            } else if (event == GameTrace.BREAK) {
+                broke |= 1 << item;
+            }
+        }
+        int ending = endingOf(event);
+        if (ending >= 0) {
+            finishGame(ending, turn, gold);
+        }
+    }
+
+    /**
+     * Adds all of another FunnelStats' games into this one. Any game either of them is partway through is dropped.
+     *
+     * @return this, to make joining results easy.
+     */
+    public FunnelStats merge(FunnelStats other) {
+        records += other.records;
+        unfinished += other.unfinished + (other.inGame ? 1 : 0);
+        addAll(endings, other.endings);
+        addAll(everBought, other.everBought);
+        addAll(everSold, other.everSold);
+        addAll(everBroke, other.everBroke);
+        addAll(everDid, other.everDid);
+        addAll(finalGold, other.finalGold);
+        for (int i = 0; i < finalTurns.length; i++) {
+            finalTurns[i] += other.finalTurns[i];
+        }
+        return this;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * @param mode An index into RuleBook.MODES.
+     * @return How many games in that mode were read from start to end.
+     */
+    public long getGames(int mode) {
+        long games = 0;
+        for (long count : endings[mode]) {
+            games += count;
+        }
+        return games;
+    }
+
+    /**
+     * @return The fraction of finished games in a mode that ever bought the item.
+     */
+    public double getEverBought(int mode, Item item) {
+        return fraction(everBought[mode][item.ordinal()], getGames(mode));
+    }
+
+    /**
+     * Prints the funnel for every mode that has any games.
+     *
+     * @param out Where to print it.
+     */
+    public void printReport(PrintStream out) {
+        out.printf("%d records%s%n", records, unfinished > 0 ? ", " + unfinished + " games cut off partway" : "");
+        for (int m = 0; m < MODES; m++) {
+            long games = getGames(m);
+            if (games == 0) {
+                continue;
+            }
+            out.printf("Mode %s: %d games, %.2f%% won, %.2f%% game over, %.2f%% quit%n", RuleBook.MODES.charAt(m), games,
+                    percent(endings[m][0], games), percent(endings[m][1], games), percent(endings[m][2], games));
+            out.print("  ever bought:");
+            printByItem(out, everBought[m], games);
+            out.print("  ever sold:");
+            printByItem(out, everSold[m], games);
+            out.print("  ever broke:");
+            printByItem(out, everBroke[m], games);
+            out.printf("  ever looked for trouble %.2f%%, won a brawl %.2f%%, lost a brawl %.2f%%, dug %.2f%%, found a treasure %.2f%%%n",
+                    percent(everDid[m][TROUBLE], games),
+                    percent(everDid[m][GameTrace.BRAWL_WON], games), percent(everDid[m][GameTrace.BRAWL_LOST], games),
+                    percent(everDid[m][GameTrace.DIG], games), percent(everDid[m][GameTrace.TREASURE], games));
+            for (int e = 0; e < ENDINGS.length; e++) {
+                long count = endings[m][e];
+                if (count == 0) {
+                    continue;
+                }
+                long[] gold = finalGold[m * ENDINGS.length + e];
+                out.printf("  gold at %s: p10 %d, p50 %d, p90 %d (%.1f turns on average)%n", GameTrace.EVENTS[ENDINGS[e]],
+                        percentile(gold, 0.1), percentile(gold, 0.5), percentile(gold, 0.9),
+                        (double) finalTurns[m * ENDINGS.length + e] / count);
+            }
+        }
+    }
+
+    private void finishGame(int ending, int turn, int gold) {
+        inGame = false;
+        endings[mode][ending]++;
+        countBits(everBought[mode], bought);
+        countBits(everSold[mode], sold);
+        countBits(everBroke[mode], broke);
+        countBits(everDid[mode], did);
+        int row = mode * ENDINGS.length + ending;
+        finalGold[row][Math.max(MIN_GOLD, Math.min(MAX_GOLD, gold)) - MIN_GOLD]++;
+        finalTurns[row] += turn;
+    }
+
+    private static int endingOf(int event) {
+        for (int i = 0; i < ENDINGS.length; i++) {
+            if (ENDINGS[i] == event) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void countBits(long[] counts, int bits) {
+        while (bits != 0) {
+            counts[Integer.numberOfTrailingZeros(bits)]++;
+            bits &= bits - 1;
+        }
+    }
+
+    private static void printByItem(PrintStream out, long[] counts, long games) {
+        for (Item item : Item.VALUES) {
+            out.printf(" %s %.2f%%", item.getName(), percent(counts[item.ordinal()], games));
+        }
+        out.println();
+    }
+
+    private static int percentile(long[] histogram, double fraction) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        long target = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target && seen > 0) {
+                return i + MIN_GOLD;
+            }
+        }
+        return MAX_GOLD;
+    }
+
+    private static double fraction(long count, long games) {
+        return games == 0 ? 0 : (double) count / games;
+    }
+
+    private static double percent(long count, long games) {
+        return 100 * fraction(count, games);
+    }
+
+    private static void addAll(long[][] into, long[][] from) {
+        for (int i = 0; i < into.length; i++) {
+            for (int j = 0; j < into[i].length; j++) {
+                into[i][j] += from[i][j];
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * A GameInput is wherever a game session gets the player's typed lines from.<p>
+ * Each session owns exactly one, so the shop and the main menu never fight over the same stream.
+ * There is one for each place lines can come from: a stream such as System.in (ReaderInput), a socket
+ * (also ReaderInput), an in-memory queue fed by another thread (QueueInput), a script in memory or in a
+ * file (ScriptInput), or a bot (StrategyInput). Any of them can be wrapped in a ReadAheadInput so lines
+ * are read in the background while the game works.
+ */
+public interface GameInput {
+
+    /**
+     * Reads the next line the player entered.
+     *
+     * @return the line without its line terminator, or null if there is no more input.
+     */
+    String nextLine();
+
+    /**
+     * Says whether the next line is already here. When it is, the session doesn't bother flushing its
+     * output first, since nobody is waiting on it; a script or a player typing ahead then plays through
+     * as fast as the game can go, and the output catches up the next time the game really has to wait.
+     *
+     * @return true if nextLine() will return straight away; false if it might block, or if that can't be told.
+     */
+    default boolean ready() {
+        return false;
+    }
+}
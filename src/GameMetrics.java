@@ -0,0 +1,389 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts what happens in every game in the process and times every menu action.<p>
+ * Everything is a LongAdder or a LatencyHistogram, so any number of sessions can record at once without
+ * locking or waiting on each other, and reading the numbers never stops a game. There is one shared set
+ * per process (every GameSession records into it); it can be watched over JMX with register() or
+ * printed every so often with startDumping().<p>
+ * Action times cover the game's own work for a menu choice. Time spent waiting for the player to type
+ * is left out, and time spent sending text out is kept separately as the output time.
+ */
+public class GameMetrics implements GameMetricsMXBean {
+    // constants
+    public static final String OBJECT_NAME = "treasurehunter:type=GameMetrics";
+    static final int BUY = 0;
+    static final int SELL = 1;
+    static final int EXPLORE = 2;
+    static final int MOVE = 3;
+    static final int TROUBLE = 4;
+    static final int QUIT = 5;
+    static final int HUNT = 6;
+    static final int DIG = 7;
+    static final int SAVE = 8;
+    static final int INVALID = 9;
+    private static final String[] ACTIONS = {"buy", "sell", "explore", "move", "trouble", "quit", "hunt", "dig", "save", "invalid"};
+    private static final GameMetrics SHARED = new GameMetrics();
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // instance variables
+    private final LongAdder gamesStarted;
+    private final LongAdder wins;
+    private final LongAdder gameOvers;
+    private final LongAdder brawlsWon;
+    private final LongAdder brawlsLost;
+    private final LongAdder troubleNotFound;
+    private final LongAdder goldWonInBrawls;
+    private final LongAdder goldLostInBrawls;
+    private final LongAdder digs;
+    private final LongAdder goldStrikes;
+    private final LongAdder goldDug;
+    private final LongAdder crossings;
+    private final LongAdder[] breaks; // by Item ordinal
+    private final LongAdder[] purchases; // by Item ordinal
+    private final LongAdder[] sales; // by Item ordinal
+    private final LongAdder[] treasuresFound; // by Treasure ordinal
+    private final LatencyHistogram[] actionTimes; // by action
+    private final LatencyHistogram outputTimes;
+
+    public GameMetrics() {
+        gamesStarted = new LongAdder();
+        wins = new LongAdder();
+        gameOvers = new LongAdder();
+        brawlsWon = new LongAdder();
+        brawlsLost = new LongAdder();
+        troubleNotFound = new LongAdder();
+        goldWonInBrawls = new LongAdder();
+        goldLostInBrawls = new LongAdder();
+        digs = new LongAdder();
+        goldStrikes = new LongAdder();
+        goldDug = new LongAdder();
+        crossings = new LongAdder();
+        breaks = adders(Item.VALUES.length);
+        purchases = adders(Item.VALUES.length);
+        sales = adders(Item.VALUES.length);
+        treasuresFound = adders(Treasure.VALUES.length);
+        actionTimes = new LatencyHistogram[ACTIONS.length];
+        for (int i = 0; i < ACTIONS.length; i++) {
+            actionTimes[i] = new LatencyHistogram();
+        }
+        outputTimes = new LatencyHistogram();
+    }
+
+    /**
+     * @return The metrics every session in this process records into.
+     */
+    public static GameMetrics shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param choice A menu choice, as typed.
+     * @return The action it counts as.
+     */
+    static int actionOf(String choice) {
+        switch (choice) {
+            case "b":
+                return BUY;
+            case "s":
+                return SELL;
+            case "e":
+                return EXPLORE;
+            case "m":
+                return MOVE;
+            case "l":
+                return TROUBLE;
+            case "x":
+                return QUIT;
+            case "h":
+                return HUNT;
+            case "d":
+                return DIG;
+            case "v":
+                return SAVE;
+            default:
+                return INVALID;
+        }
+    }
+
+    // recording
+    /**
+     * Counts a game being played, whether it's a new one or one carried on from a save file.
+     */
+    public void gameStarted() {
+        gamesStarted.increment();
+    }
+
+    public void gameWon() {
+        wins.increment();
+    }
+
+    public void gameOver() {
+        gameOvers.increment();
+    }
+
+    /**
+     * @param won Whether the hunter won the brawl.
+     * @param gold How much gold changed hands.
+     */
+    public void brawl(boolean won, int gold) {
+        if (won) {
+            brawlsWon.increment();
+            goldWonInBrawls.add(gold);
+        } else {
+            brawlsLost.increment();
+            goldLostInBrawls.add(gold);
+        }
+    }
+
+    public void noTrouble() {
+        troubleNotFound.increment();
+    }
+
+    /**
+     * @param gold The gold dug up, or 0 for only dirt.
+     */
+    public void dig(int gold) {
+        digs.increment();
+        if (gold > 0) {
+            goldStrikes.increment();
+            goldDug.add(gold);
+        }
+    }
+
+    /**
+     * @param item The item used to cross the terrain.
+     * @param broke Whether it broke on the way.
+     */
+    public void crossed(Item item, boolean broke) {
+        crossings.increment();
+        if (broke) {
+            breaks[item.ordinal()].increment();
+        }
+    }
+
+    public void bought(Item item) {
+        purchases[item.ordinal()].increment();
+    }
+
+    public void sold(Item item) {
+        sales[item.ordinal()].increment();
+    }
+
+    public void treasureFound(Treasure treasure) {
+        treasuresFound[treasure.ordinal()].increment();
+    }
+
+    /**
+     * @param action One of the action constants.
+     * @param nanos How long the game took to carry it out.
+     */
+    public void recordAction(int action, long nanos) {
+        actionTimes[action].record(nanos);
+    }
+
+    /**
+     * @param nanos How long it took to send a batch of text to the player.
+     */
+    public void recordOutput(long nanos) {
+        outputTimes.record(nanos);
+    }
+
+    // exporting
+    /**
+     * Makes these metrics visible over JMX under OBJECT_NAME.
+     */
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * Prints the metrics on a background thread every so often, for as long as the process runs.
+     *
+     * @param out Where to print them.
+     * @param seconds How often.
+     * @return The scheduler doing the printing; shut it down to stop.
+     */
+    public ScheduledExecutorService startDumping(PrintStream out, long seconds) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> dump(out), seconds, seconds, TimeUnit.SECONDS);
+        return scheduler;
+    }
+
+    /**
+     * Prints every metric as a small plain text report.
+     */
+    public void dump(PrintStream out) {
+        StringBuilder str = new StringBuilder();
+        str.append("--- Treasure Hunter metrics at ").append(LocalDateTime.now().format(TIME)).append(" ---\n");
+        str.append(String.format("games: %d started, %d won, %d game over%n", getGamesStarted(), getWins(), getGameOvers()));
+        str.append(String.format("brawls: %d won (+%d gold), %d lost (-%d gold), %d times no trouble found%n",
+                getBrawlsWon(), getGoldWonInBrawls(), getBrawlsLost(), getGoldLostInBrawls(), getTroubleNotFound()));
+        str.append(String.format("digs: %d, struck gold %d times for %d gold%n", getDigs(), getGoldStrikes(), getGoldDug()));
+        str.append(String.format("crossings: %d, items broken %d %s%n", getCrossings(), getItemBreaks(), byItem(breaks)));
+        str.append("bought: ").append(byItem(purchases)).append('\n');
+        str.append("sold: ").append(byItem(sales)).append('\n');
+        str.append("treasures found: ").append(getTreasuresFound()).append('\n');
+        str.append(String.format("%-8s %10s %10s %10s %10s%n", "action", "count", "p50 us", "p99 us", "p99.9 us"));
+        for (int i = 0; i < ACTIONS.length; i++) {
+            appendTimes(str, ACTIONS[i], actionTimes[i]);
+        }
+        appendTimes(str, "output", outputTimes);
+        out.print(str);
+        out.flush();
+    }
+
+    // JMX attributes
+    @Override
+    public long getGamesStarted() {
+        return gamesStarted.sum();
+    }
+
+    @Override
+    public long getWins() {
+        return wins.sum();
+    }
+
+    @Override
+    public long getGameOvers() {
+        return gameOvers.sum();
+    }
+
+    @Override
+    public long getBrawlsWon() {
+        return brawlsWon.sum();
+    }
+
+    @Override
+    public long getBrawlsLost() {
+        return brawlsLost.sum();
+    }
+
+    @Override
+    public long getTroubleNotFound() {
+        return troubleNotFound.sum();
+    }
+
+    @Override
+    public long getGoldWonInBrawls() {
+        return goldWonInBrawls.sum();
+    }
+
+    @Override
+    public long getGoldLostInBrawls() {
+        return goldLostInBrawls.sum();
+    }
+
+    @Override
+    public long getDigs() {
+        return digs.sum();
+    }
+
+    @Override
+    public long getGoldStrikes() {
+        return goldStrikes.sum();
+    }
+
+    @Override
+    public long getGoldDug() {
+        return goldDug.sum();
+    }
+
+    @Override
+    public long getCrossings() {
+        return crossings.sum();
+    }
+
+    @Override
+    public long getItemBreaks() {
+        long total = 0;
+        for (LongAdder count : breaks) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Long> getPurchases() {
+        return byItem(purchases);
+    }
+
+    @Override
+    public Map<String, Long> getSales() {
+        return byItem(sales);
+    }
+
+    @Override
+    public Map<String, Long> getTreasuresFound() {
+        Map<String, Long> found = new LinkedHashMap<>();
+        for (Treasure treasure : Treasure.VALUES) {
+            found.put(treasure.getName(), treasuresFound[treasure.ordinal()].sum());
+        }
+        return found;
+    }
+
+    @Override
+    public Map<String, Long> getActionCounts() {
+        return byAction(LatencyHistogram::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getActionMedianNanos() {
+        return byAction(times -> times.getPercentile(0.50));
+    }
+
+    @Override
+    public Map<String, Long> getActionP99Nanos() {
+        return byAction(times -> times.getPercentile(0.99));
+    }
+
+    @Override
+    public long getOutputP99Nanos() {
+        return outputTimes.getPercentile(0.99);
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static Map<String, Long> byItem(LongAdder[] counts) {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (Item item : Item.VALUES) {
+            map.put(item.getName(), counts[item.ordinal()].sum());
+        }
+        return map;
+    }
+
+    private Map<String, Long> byAction(ToLongFunction<LatencyHistogram> stat) {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (int i = 0; i < ACTIONS.length; i++) {
+            map.put(ACTIONS[i], stat.applyAsLong(actionTimes[i]));
+        }
+        return map;
+    }
+
+    private static void appendTimes(StringBuilder str, String name, LatencyHistogram times) {
+        str.append(String.format("%-8s %10d %10.1f %10.1f %10.1f%n", name, times.getCount(), times.getPercentile(0.50) / 1e3,
+                times.getPercentile(0.99) / 1e3, times.getPercentile(0.999) / 1e3));
+    }
+}
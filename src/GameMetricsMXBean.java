@@ -0,0 +1,47 @@
+import java.util.Map;
+
+/**
+ * What GameMetrics shows over JMX (for example in JConsole, under treasurehunter:type=GameMetrics).
+ * Counts are totals since the process started; times are in nanoseconds.
+ */
+public interface GameMetricsMXBean {
+    long getGamesStarted();
+
+    long getWins();
+
+    long getGameOvers();
+
+    long getBrawlsWon();
+
+    long getBrawlsLost();
+
+    long getTroubleNotFound();
+
+    long getGoldWonInBrawls();
+
+    long getGoldLostInBrawls();
+
+    long getDigs();
+
+    long getGoldStrikes();
+
+    long getGoldDug();
+
+    long getCrossings();
+
+    long getItemBreaks();
+
+    Map<String, Long> getPurchases();
+
+    Map<String, Long> getSales();
+
+    Map<String, Long> getTreasuresFound();
+
+    Map<String, Long> getActionCounts();
+
+    Map<String, Long> getActionMedianNanos();
+
+    Map<String, Long> getActionP99Nanos();
+
+    long getOutputP99Nanos();
+}
@@ -0,0 +1,36 @@
+/**
+ * A GameOutput is wherever a game session sends the text it shows the player.<p>
+ * The Swing OutputWindow is one of these, but a session doesn't care which one it has.<p>
+ * Text may hold the escape codes from Colors; outputs that can't pass them through turn them into
+ * styles with StyledText or strip them, so no output ever shows them as garbage.
+ */
+public interface GameOutput {
+
+    /**
+     * Shows a line of text to the player.
+     *
+     * @param text The text to show.
+     * @param style The style of the line as a whole (outputs that can't do color may ignore it).
+     */
+    void addTextToWindow(String text, TextStyle style);
+
+    /**
+     * Shows a question right before the game waits for the player to type an answer.
+     *
+     * @param text The question to ask.
+     */
+    void prompt(String text);
+
+    /**
+     * Wipes whatever is currently being shown.
+     */
+    void clear();
+
+    /**
+     * Makes sure everything shown since the last flush has actually reached the player.<p>
+     * The game calls this once per turn, right before it waits for the player's next line,
+     * so outputs are free to hold text back until then. When the next line is already waiting
+     * (scripts, or a player typing ahead) there's no wait and no flush, so several turns can share one.
+     */
+    void flush();
+}
@@ -0,0 +1,176 @@
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The numbers one mode of the game is played by: shop markdown, how tough towns are, the odds of brawls,
+ * digs and broken items, and how much gold a hunter starts with.<p>
+ * Rules never change once made. A RuleBook holds one set for each mode; a session takes its set when its
+ * mode is picked and keeps it for the rest of the game, so a rule is always just a field read and a game
+ * is never caught halfway between two versions of the rules.
+ */
+public final class GameRules {
+    // instance variables
+    private final String mode;
+    private final double markdown;
+    private final double toughness;
+    private final double toughTownTrouble;
+    private final double mildTownTrouble;
+    private final double brawlBonus;
+    private final double itemBreakChance;
+    private final double strikeGoldChance;
+    private final int maxDigGold;
+    private final int maxBrawlGold;
+    private final int startingGold;
+
+    /**
+     * Reads one mode's rules. Each rule is looked up as "mode.rule" (for example "h.markdown"), then as
+     * plain "rule" for every mode, first in the given properties and then in the defaults.
+     *
+     * @param mode The mode answer: "e", "n", "h" or "s".
+     * @param rules The rules as read from a file.
+     * @param defaults The rules the game is played by when nothing else is said.
+     * @throws IllegalArgumentException If a rule isn't a number or is out of range.
+     */
+    GameRules(String mode, Properties rules, Properties defaults) {
+        this.mode = mode;
+        markdown = fraction(rules, defaults, "markdown");
+        toughness = fraction(rules, defaults, "toughness");
+        toughTownTrouble = fraction(rules, defaults, "toughTownTrouble");
+        mildTownTrouble = fraction(rules, defaults, "mildTownTrouble");
+        brawlBonus = fraction(rules, defaults, "brawlBonus");
+        itemBreakChance = fraction(rules, defaults, "itemBreakChance");
+        strikeGoldChance = fraction(rules, defaults, "strikeGoldChance");
+        maxDigGold = positive(rules, defaults, "maxDigGold");
+        maxBrawlGold = positive(rules, defaults, "maxBrawlGold");
+        startingGold = positive(rules, defaults, "startingGold");
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * @return How much of an item's price shops pay back, in decimal format.
+     */
+    public double getMarkdown() {
+        return markdown;
+    }
+
+    /**
+     * @return The chance that a new town is a tough town.
+     */
+    public double getToughness() {
+        return toughness;
+    }
+
+    /**
+     * @return The chance of finding trouble in a tough town, which is also the chance of losing the brawl.
+     */
+    public double getToughTownTrouble() {
+        return toughTownTrouble;
+    }
+
+    /**
+     * @return The chance of finding trouble in a mild town, which is also the chance of losing the brawl.
+     */
+    public double getMildTownTrouble() {
+        return mildTownTrouble;
+    }
+
+    /**
+     * @return How much more likely the hunter is to win a brawl.
+     */
+    public double getBrawlBonus() {
+        return brawlBonus;
+    }
+
+    /**
+     * @return The chance that the item used to cross a terrain breaks on the way.
+     */
+    public double getItemBreakChance() {
+        return itemBreakChance;
+    }
+
+    /**
+     * @return The chance that digging strikes gold rather than dirt.
+     */
+    public double getStrikeGoldChance() {
+        return strikeGoldChance;
+    }
+
+    /**
+     * @return The most gold one dig can turn up.
+     */
+    public int getMaxDigGold() {
+        return maxDigGold;
+    }
+
+    /**
+     * @return The most gold that can change hands in one brawl.
+     */
+    public int getMaxBrawlGold() {
+        return maxBrawlGold;
+    }
+
+    public int getStartingGold() {
+        return startingGold;
+    }
+
+    /**
+     * Writes these rules out as "mode.rule=value" lines, which read back as exactly the same rules.
+     *
+     * @param lines Where to add the lines.
+     */
+    void writeTo(List<String> lines) {
+        lines.add(mode + ".markdown=" + markdown);
+        lines.add(mode + ".toughness=" + toughness);
+        lines.add(mode + ".toughTownTrouble=" + toughTownTrouble);
+        lines.add(mode + ".mildTownTrouble=" + mildTownTrouble);
+        lines.add(mode + ".brawlBonus=" + brawlBonus);
+        lines.add(mode + ".itemBreakChance=" + itemBreakChance);
+        lines.add(mode + ".strikeGoldChance=" + strikeGoldChance);
+        lines.add(mode + ".maxDigGold=" + maxDigGold);
+        lines.add(mode + ".maxBrawlGold=" + maxBrawlGold);
+        lines.add(mode + ".startingGold=" + startingGold);
+    }
+
+    private String lookUp(Properties rules, Properties defaults, String key) {
+        String value = rules.getProperty(mode + "." + key);
+        if (value == null) {
+            value = rules.getProperty(key);
+        }
+        if (value == null) {
+            value = defaults.getProperty(mode + "." + key);
+        }
+        if (value == null) {
+            value = defaults.getProperty(key);
+        }
+        return value.trim();
+    }
+
+    private double fraction(Properties rules, Properties defaults, String key) {
+        String value = lookUp(rules, defaults, key);
+        try {
+            double number = Double.parseDouble(value);
+            if (number >= 0 && number <= 1) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(mode + "." + key + " must be a number from 0 to 1, not " + value);
+    }
+
+    private int positive(Properties rules, Properties defaults, String key) {
+        String value = lookUp(rules, defaults, key);
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(mode + "." + key + " must be a whole number above 0, not " + value);
+    }
+}
@@ -0,0 +1,365 @@
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A GameSession holds everything that belongs to one game of Treasure Hunter:
+ * the hunter, the current town, the mode flags, and where input comes from and output goes to.<p>
+ * Nothing in here is static, so one JVM can run as many sessions side by side as it likes,
+ * and none of it needs Swing -- the OutputWindow is just one kind of GameOutput.<p>
+ * Every random roll in the game comes from the session's own seeded SplittableRandom, so a session
+ * started with the same seed and fed the same lines always plays out the same way, and sessions on
+ * different threads never contend over a shared generator the way Math.random() does.<p>
+ * A session takes the RuleBook that is current when it is made and plays by it to the end, even if the
+ * rules are reloaded meanwhile; getRules() is the set for the session's mode.<p>
+ * A session can also be played on a fixed World (see setWorld()), where the hunter picks which road to take
+ * out of each town and a town's treasure can only be hunted once however often the hunter comes back.
+ */
+public class GameSession {
+    // instance variables
+    private final GameInput input;
+    private final GameOutput output;
+    private final long seed;
+    private final SplittableRandom random;
+    private final GameMetrics metrics;
+    private final RuleBook ruleBook;
+    private GameRules rules;
+    private Market market;
+    private Leaderboard leaderboard;
+    private GameTrace trace;
+    private Path saveDirectory;
+    private World world;
+    private RoutePlanner routePlanner;
+    private int worldTown;
+    private BitSet huntedTowns;
+    private Hunter hunter;
+    private Town currentTown;
+    private boolean hardMode;
+    private boolean easyMode;
+    private boolean samuraiMode;
+    private int turns;
+    private long waitNanos;
+
+    /**
+     * Creates a new session with a random seed and no hunter or town yet; those get set up once the game starts.
+     *
+     * @param input Where the player's lines come from.
+     * @param output Where the game's text goes.
+     */
+    public GameSession(GameInput input, GameOutput output) {
+        this(input, output, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Creates a new session whose random rolls all come from the given seed.
+     *
+     * @param input Where the player's lines come from.
+     * @param output Where the game's text goes.
+     * @param seed The seed for every random roll in this game.
+     */
+    public GameSession(GameInput input, GameOutput output, long seed) {
+        this(input, output, seed, RuleBook.current());
+    }
+
+    /**
+     * Creates a new session that plays by the given rules instead of the current ones, such as a replay
+     * of a game that was played by other rules.
+     *
+     * @param input Where the player's lines come from.
+     * @param output Where the game's text goes.
+     * @param seed The seed for every random roll in this game.
+     * @param ruleBook The rules to play by.
+     */
+    public GameSession(GameInput input, GameOutput output, long seed, RuleBook ruleBook) {
+        this.input = input;
+        this.output = output;
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        this.metrics = GameMetrics.shared();
+        this.ruleBook = ruleBook;
+        rules = ruleBook.forMode(getMode());
+        trace = GameTrace.OFF;
+        hunter = null;
+        currentTown = null;
+    }
+
+    /**
+     * Shows everything waiting in the output, then reads the player's next line in lower case.
+     * If the line is already waiting (see GameInput.ready()) the output is left for later instead.<p>
+     * When the input runs dry this answers "x" (exit), so a finished script or a closed
+     * stream winds the game down instead of blowing up.<p>
+     * The time spent sending output is recorded as the output time, and everything spent in here
+     * is added to getWaitNanos() so it isn't counted as part of the action that asked for the line.
+     *
+     * @return The next line, lower cased.
+     */
+    public String nextLine() {
+        long start = System.nanoTime();
+        if (!input.ready()) {
+            output.flush();
+            metrics.recordOutput(System.nanoTime() - start);
+        }
+        String line = input.nextLine();
+        waitNanos += System.nanoTime() - start;
+        if (line == null) {
+            return "x";
+        }
+        return line.toLowerCase();
+    }
+
+    // accessors
+    public GameInput getInput() {
+        return input;
+    }
+
+    public GameOutput getOutput() {
+        return output;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return Where this session's counts and timings are recorded.
+     */
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return The market this session's shops trade on, or null if they use fixed catalog prices.
+     */
+    public Market getMarket() {
+        return market;
+    }
+
+    /**
+     * Makes this session's shops trade on a shared market. It has to be set before the game starts,
+     * and games that use one can't be replayed exactly, since prices depend on other players.
+     *
+     * @param market The market, or null for fixed catalog prices.
+     */
+    public void setMarket(Market market) {
+        this.market = market;
+    }
+
+    /**
+     * @return The leaderboard this session's game is recorded on when it finishes, or null if there isn't one.
+     */
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    public void setLeaderboard(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
+    /**
+     * @return Where this session's town and shop outcomes are recorded for its Telemetry (GameTrace.OFF if it has none).
+     */
+    public GameTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Sends this session's finished game to a Telemetry. It has to be set before the game starts.
+     *
+     * @param telemetry The telemetry, or null to not record anything.
+     */
+    public void setTelemetry(Telemetry telemetry) {
+        trace = telemetry == null ? GameTrace.OFF : new GameTrace(telemetry, this);
+    }
+
+    /**
+     * @return The directory the player's game is saved to, or null if this session can't be saved.
+     */
+    public Path getSaveDirectory() {
+        return saveDirectory;
+    }
+
+    /**
+     * Lets the player save this game. Sessions can't be saved unless this is set, so replays, scripts,
+     * bots and remote players never leave save files behind or overwrite someone else's.
+     *
+     * @param saveDirectory Where save files go, or null to not allow saving.
+     */
+    public void setSaveDirectory(Path saveDirectory) {
+        this.saveDirectory = saveDirectory;
+    }
+
+    /**
+     * @return The world this game is played on, or null if each town is rolled as the hunter reaches it.
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Plays this game on a fixed world, starting in its town 0. It has to be set before the game starts.
+     * Games on a world can't be saved, since a save file doesn't record the world or where the hunter is in it.
+     *
+     * @param world The world, or null to roll each town as the hunter reaches it.
+     */
+    public void setWorld(World world) {
+        this.world = world;
+        routePlanner = null;
+        worldTown = 0;
+        huntedTowns = world == null ? null : new BitSet();
+    }
+
+    /**
+     * @return A planner for this game's world that prices roads by this game's mode, made the first time it's asked for.
+     */
+    public RoutePlanner getRoutePlanner() {
+        if (routePlanner == null && world != null) {
+            routePlanner = new RoutePlanner(world, rules.getItemBreakChance());
+        }
+        return routePlanner;
+    }
+
+    /**
+     * @return The world town the hunter is in (only meaningful when there's a world).
+     */
+    public int getWorldTown() {
+        return worldTown;
+    }
+
+    public void setWorldTown(int worldTown) {
+        this.worldTown = worldTown;
+    }
+
+    /**
+     * @return true if the treasure in the hunter's world town has already been hunted this game.
+     */
+    public boolean isWorldTownHunted() {
+        return huntedTowns.get(worldTown);
+    }
+
+    /**
+     * Remembers that the treasure in the hunter's world town has been hunted, so it isn't there next time.
+     */
+    public void worldTownHunted() {
+        huntedTowns.set(worldTown);
+    }
+
+    /**
+     * @return The total time this session has spent showing output and waiting for lines, in nanoseconds.
+     */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    /**
+     * @return The generator every random roll in this game should come from.
+     */
+    public SplittableRandom getRandom() {
+        return random;
+    }
+
+    public Hunter getHunter() {
+        return hunter;
+    }
+
+    public void setHunter(Hunter hunter) {
+        this.hunter = hunter;
+    }
+
+    public Town getCurrentTown() {
+        return currentTown;
+    }
+
+    public void setCurrentTown(Town currentTown) {
+        this.currentTown = currentTown;
+    }
+
+    /**
+     * @return How many times the main menu has been shown this game.
+     */
+    public int getTurns() {
+        return turns;
+    }
+
+    public void setTurns(int turns) {
+        this.turns = turns;
+    }
+
+    /**
+     * Counts one more trip through the main menu.
+     */
+    public void nextTurn() {
+        turns++;
+    }
+
+    /**
+     * @return The rules this game is played by, for its mode.
+     */
+    public GameRules getRules() {
+        return rules;
+    }
+
+    /**
+     * @return The book of rules this session started with.
+     */
+    public RuleBook getRuleBook() {
+        return ruleBook;
+    }
+
+    /**
+     * @return How much of an item's price shops pay back in this mode, in decimal format.
+     */
+    public double getMarkdown() {
+        return rules.getMarkdown();
+    }
+
+    /**
+     * @return The chance that a new town is a tough town in this mode.
+     */
+    public double getToughness() {
+        return rules.getToughness();
+    }
+
+    /**
+     * @return The mode answer this game was started with: "e", "n", "h" or "s".
+     */
+    public String getMode() {
+        if (samuraiMode) {
+            return "s";
+        }
+        if (easyMode) {
+            return "e";
+        }
+        if (hardMode) {
+            return "h";
+        }
+        return "n";
+    }
+
+    public boolean isHardMode() {
+        return hardMode;
+    }
+
+    public void setHardMode(boolean hardMode) {
+        this.hardMode = hardMode;
+        rules = ruleBook.forMode(getMode());
+    }
+
+    public boolean isEasyMode() {
+        return easyMode;
+    }
+
+    public void setEasyMode(boolean easyMode) {
+        this.easyMode = easyMode;
+        rules = ruleBook.forMode(getMode());
+    }
+
+    public boolean isSamuraiMode() {
+        return samuraiMode;
+    }
+
+    public void setSamuraiMode(boolean samuraiMode) {
+        this.samuraiMode = samuraiMode;
+        rules = ruleBook.forMode(getMode());
+    }
+}
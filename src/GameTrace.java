@@ -0,0 +1,189 @@
+import java.util.Arrays;
+
+/**
+ * Everything that happened in one session's game, one record per town or shop outcome, kept until the game
+ * finishes and then handed to the session's Telemetry in one go.<p>
+ * A record is the turn, what happened, how the hunter's gold changed and what it came to, and the item or
+ * treasure involved, if any. Records go into parallel int arrays that grow as needed and are reused, so a
+ * trace costs nothing per record once it has seen its longest game. Every game in a block of telemetry is
+ * whole, starting with a START record and ending with WIN, GAME_OVER or QUIT.<p>
+ * Sessions without telemetry share OFF, which ignores everything.
+ */
+public class GameTrace {
+    // constants
+    static final int START = 0;
+    static final int BUY = 1;
+    static final int SELL = 2;
+    static final int CROSS = 3;
+    static final int BREAK = 4;
+    static final int TREASURE = 5;
+    static final int NO_TROUBLE = 6;
+    static final int BRAWL_WON = 7;
+    static final int BRAWL_LOST = 8;
+    static final int DIG = 9;
+    static final int WIN = 10;
+    static final int GAME_OVER = 11;
+    static final int QUIT = 12;
+    static final String[] EVENTS = {"start", "buy", "sell", "cross", "break", "treasure", "no trouble",
+            "brawl won", "brawl lost", "dig", "win", "game over", "quit"};
+    static final int NONE = -1; // no item or treasure
+    static final GameTrace OFF = new GameTrace(null, null);
+    private static final int INITIAL_RECORDS = 64;
+
+    // instance variables
+    private final Telemetry telemetry;
+    private final GameSession session;
+    private int mode;
+    private int size;
+    private int lastGold;
+    private int[] turns;
+    private int[] events;
+    private int[] goldDeltas;
+    private int[] golds;
+    private int[] items;
+    private int[] treasures;
+
+    /**
+     * @param telemetry Where finished games go.
+     * @param session The session being traced.
+     */
+    public GameTrace(Telemetry telemetry, GameSession session) {
+        this.telemetry = telemetry;
+        this.session = session;
+        if (telemetry != null) {
+            turns = new int[INITIAL_RECORDS];
+            events = new int[INITIAL_RECORDS];
+            goldDeltas = new int[INITIAL_RECORDS];
+            golds = new int[INITIAL_RECORDS];
+            items = new int[INITIAL_RECORDS];
+            treasures = new int[INITIAL_RECORDS];
+        }
+    }
+
+    // recording
+    /**
+     * Starts a new game (or the rest of a saved one), once the hunter has been made.
+     */
+    public void started() {
+        if (telemetry == null) {
+            return;
+        }
+        size = 0;
+        lastGold = 0;
+        mode = RuleBook.MODES.indexOf(session.getMode());
+        add(START, NONE, NONE);
+    }
+
+    public void bought(Item item) {
+        add(BUY, item);
+    }
+
+    public void sold(Item item) {
+        add(SELL, item);
+    }
+
+    /**
+     * @param item The item used to cross the terrain.
+     * @param broke Whether it broke on the way.
+     */
+    public void crossed(Item item, boolean broke) {
+        add(broke ? BREAK : CROSS, item);
+    }
+
+    public void treasureFound(Treasure treasure) {
+        if (telemetry != null) {
+            add(TREASURE, NONE, treasure.ordinal());
+        }
+    }
+
+    public void noTrouble() {
+        add(NO_TROUBLE, null);
+    }
+
+    /**
+     * @param won Whether the hunter won the brawl.
+     */
+    public void brawl(boolean won) {
+        add(won ? BRAWL_WON : BRAWL_LOST, null);
+    }
+
+    /**
+     * Records a dig; the gold column tells whether it struck gold.
+     */
+    public void dug() {
+        add(DIG, null);
+    }
+
+    /**
+     * Ends the game with how it turned out and sends it to the telemetry.
+     */
+    public void finished() {
+        if (telemetry == null || size == 0) {
+            return;
+        }
+        Hunter hunter = session.getHunter();
+        add(hunter.checkWin() ? WIN : hunter.getGold() < 0 ? GAME_OVER : QUIT, null);
+        telemetry.append(this);
+        size = 0;
+    }
+
+    // reading, for Telemetry
+    int getMode() {
+        return mode;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getTurn(int record) {
+        return turns[record];
+    }
+
+    int getEvent(int record) {
+        return events[record];
+    }
+
+    int getGoldDelta(int record) {
+        return goldDeltas[record];
+    }
+
+    int getGold(int record) {
+        return golds[record];
+    }
+
+    int getItem(int record) {
+        return items[record];
+    }
+
+    int getTreasure(int record) {
+        return treasures[record];
+    }
+
+    private void add(int event, Item item) {
+        if (telemetry != null) {
+            add(event, item == null ? NONE : item.ordinal(), NONE);
+        }
+    }
+
+    private void add(int event, int item, int treasure) {
+        if (size == turns.length) {
+            int length = 2 * size;
+            turns = Arrays.copyOf(turns, length);
+            events = Arrays.copyOf(events, length);
+            goldDeltas = Arrays.copyOf(goldDeltas, length);
+            golds = Arrays.copyOf(golds, length);
+            items = Arrays.copyOf(items, length);
+            treasures = Arrays.copyOf(treasures, length);
+        }
+        int gold = session.getHunter().getGold();
+        turns[size] = session.getTurns();
+        events[size] = event;
+        goldDeltas[size] = gold - lastGold;
+        golds[size] = gold;
+        items[size] = item;
+        treasures[size] = treasure;
+        lastGold = gold;
+        size++;
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * A simple bot: hunt and dig whenever it can, move on as soon as it has the item to cross the terrain,
+ * buy that item when it can afford it, and otherwise go looking for trouble to earn gold.
+ */
+public class GreedyStrategy implements Strategy {
+
+    @Override
+    public String nextMove(GameSession session) {
+        Hunter hunter = session.getHunter();
+        Town town = session.getCurrentTown();
+        Shop shop = town.getShop();
+        if (session.isSamuraiMode() && !hunter.hasItemInKit("sword")) {
+            return "b sword";
+        }
+        if (town.hasTreasureLeft()) {
+            return "h";
+        }
+        if (!town.hasBeenDug() && hunter.hasItemInKit("shovel")) {
+            return "d";
+        }
+        String neededItem = town.getTerrain().getNeededItem();
+        if (hunter.hasItemInKit(neededItem)) {
+            return "m";
+        }
+        int cost = shop.getCostOfItem(neededItem);
+        if (hunter.getGold() >= cost) {
+            return "b " + neededItem;
+        }
+        if (!hunter.hasItemInKit("shovel") && hunter.getGold() >= shop.getCostOfItem("shovel")) {
+            return "b shovel";
+        }
+        return "l";
+    }
+}
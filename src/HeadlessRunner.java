@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Plays a game in the terminal without ever loading AWT or Swing, for SSH sessions, scripts and anywhere
+ * a quick start matters.<p>
+ * With --script the answers are read from a file instead of typed. With --rules the game is played by the
+ * rules in a file. With --world the hunter travels the roads of a fixed World of WORLD_TOWNS towns built
+ * from the given seed, instead of each town being rolled on arrival. With --time it prints, on System.err, how long it took from the JVM starting (and from
+ * main() being called) until the first turn was ready for the player. headless-cds.sh builds a class data
+ * sharing archive for this entry point, which cuts that time down further.
+ * Run it with: java HeadlessRunner [--script file] [--rules file] [--world seed] [--time] [save file]
+ */
+public class HeadlessRunner {
+    // constants
+    /** How many towns a world made with --world has. */
+    public static final int WORLD_TOWNS = 1000;
+    private static final String USAGE = "Run it with: java HeadlessRunner [--script file] [--rules file] [--world seed] [--time] [save file]";
+
+    public static void main(String[] args) throws IOException {
+        long mainStarted = System.nanoTime();
+        // anything that does reach for AWT by mistake gets its headless version, never a display
+        System.setProperty("java.awt.headless", "true");
+        Path script = null;
+        Path save = null;
+        World world = null;
+        boolean time = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--script") && i + 1 < args.length) {
+                script = Path.of(args[++i]);
+            } else if (args[i].equals("--rules") && i + 1 < args.length) {
+                RuleBook.reload(Path.of(args[++i]));
+            } else if (args[i].equals("--world") && i + 1 < args.length) {
+                world = new World(WORLD_TOWNS, Long.parseLong(args[++i]));
+            } else if (args[i].equals("--time")) {
+                time = true;
+            } else if (args[i].equals("--terminal")) {
+                // TreasureHunterRunner's way of asking for this runner
+            } else if (!args[i].startsWith("--") && save == null) {
+                save = Path.of(args[i]);
+            } else {
+                System.err.println(USAGE);
+                return;
+            }
+        }
+        if (world != null && save != null) {
+            System.err.println("A save file doesn't record a world, so it can't be carried on with --world");
+            return;
+        }
+        GameInput input = script != null ? ScriptInput.load(script) : ReadAheadInput.fromStdin();
+        FirstTurnTimer timer = time ? new FirstTurnTimer(input, mainStarted) : null;
+        GameSession session = new GameSession(timer != null ? timer : input, new ConsoleOutput(System.out));
+        if (timer != null) {
+            timer.session = session;
+        }
+        if (script == null) {
+            // a player at their own terminal can save, to the directory they started the game in
+            session.setSaveDirectory(Path.of(""));
+        }
+        session.setWorld(world);
+        TreasureHunter game = new TreasureHunter(session);
+        if (save != null) {
+            SaveGame.load(save, session);
+            game.resume();
+        } else {
+            game.play();
+        }
+    }
+
+    /**
+     * Passes lines through, and reports the time the first time the main menu asks for one.
+     */
+    private static final class FirstTurnTimer implements GameInput {
+        private final GameInput input;
+        private final long mainStarted;
+        private GameSession session;
+        private boolean reported;
+
+        FirstTurnTimer(GameInput input, long mainStarted) {
+            this.input = input;
+            this.mainStarted = mainStarted;
+        }
+
+        @Override
+        public String nextLine() {
+            if (!reported && session.getTurns() > 0) {
+                reported = true;
+                double fromMain = (System.nanoTime() - mainStarted) / 1e6;
+                // the process start time is only known to the nearest clock tick (usually 10 ms)
+                String fromStart = ProcessHandle.current().info().startInstant()
+                        .map(start -> Duration.between(start, Instant.now()).toMillis() + " ms")
+                        .orElse("unknown");
+                System.err.printf("First turn ready %s after the JVM started, %.1f ms after main()%n", fromStart, fromMain);
+            }
+            return input.nextLine();
+        }
+
+        @Override
+        public boolean ready() {
+            return input.ready();
+        }
+    }
+}
@@ -1,33 +1,74 @@
-import java.awt.*;
-import java.util.Objects;
 
 /**
  * Hunter Class<br /><br />
  * This class represents the treasure hunter character (the player) in the Treasure Hunt game.
- * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
+ * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!<p>
+ * The kit and treasure lists only have a few hundred possible values between them, so each one is
+ * built the first time it's needed and shared by every hunter after that, and infoString() is only
+ * rebuilt when the gold, kit or treasures have actually changed since it was last asked for.
  */
 
 public class Hunter {
+    // constants
+    private static final String[] KIT_TEXT = new String[1 << Item.VALUES.length];
+    private static final String[] TREASURE_TEXT = new String[1 << Treasure.VALUES.length];
+    private static final String[] ALREADY_HAS = new String[Treasure.VALUES.length];
+    static {
+        for (Treasure treasure : Treasure.VALUES) {
+            ALREADY_HAS[treasure.ordinal()] = "Already has " + treasure.getName();
+        }
+    }
+
     //instance variables
+    private String name;
     private String hunterName;
-    private String[] kit;
+    private int kit; // one bit per Item
+    private int kitSize;
     private int gold;
-    private String[] treasureInv;
+    private int treasureInv; // one bit per Treasure
+    private GameSession session;
+    private String info; // what infoString() last returned, and the state it was built from
+    private int infoGold;
+    private int infoKit;
+    private int infoTreasures;
     /**
      * The base constructor of a Hunter assigns the name to the hunter and an empty kit.
      *
      * @param hunterName The hunter's name.
      * @param startingGold The gold the hunter starts with.
+     * @param session The game session the hunter is playing in.
      */
-    public Hunter(String hunterName, int startingGold) {
-        this.hunterName = Color.GREEN + hunterName + Color.RESET;
-        if (TreasureHunter.isSamuraiMode()){
-            kit = new String[8];
-        } else {
-            kit = new String[7];
-        }
+    public Hunter(String hunterName, int startingGold, GameSession session) {
+        this.session = session;
+        this.name = hunterName;
+        this.hunterName = Colors.GREEN + hunterName + Colors.RESET;
+        kitSize = kitSizeFor(session);
         gold = startingGold;
-        treasureInv = new String[3];
+        kit = 0;
+        treasureInv = 0;
+    }
+
+    /**
+     * Rebuilds a hunter exactly as they were, for loading a saved game.
+     *
+     * @param hunterName The hunter's name.
+     * @param gold The gold the hunter had.
+     * @param kitBits The kit, one bit per Item.
+     * @param treasureBits The treasures found so far, one bit per Treasure.
+     * @param session The game session the hunter is playing in.
+     */
+    public Hunter(String hunterName, int gold, int kitBits, int treasureBits, GameSession session) {
+        this(hunterName, gold, session);
+        kit = kitBits;
+        treasureInv = treasureBits;
+    }
+
+    /**
+     * @param session The game session.
+     * @return How many items a hunter can carry in that session's mode.
+     */
+    public static int kitSizeFor(GameSession session) {
+        return session.isSamuraiMode() ? 8 : 7;
     }
 
     //Accessors
@@ -35,6 +76,27 @@ public class Hunter {
         return hunterName;
     }
 
+    /**
+     * @return The hunter's name without any coloring.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The kit, one bit per Item.
+     */
+    public int getKitBits() {
+        return kit;
+    }
+
+    /**
+     * @return The treasures found so far, one bit per Treasure.
+     */
+    public int getTreasureBits() {
+        return treasureInv;
+    }
+
     /**
      * Updates the amount of gold the hunter has.
      *
@@ -52,8 +114,13 @@ public class Hunter {
      * @return true if the item is successfully bought.
      */
     public boolean buyItem(String item, int costOfItem) {
-        if (TreasureHunter.isSamuraiMode()) {
-            if (!hasItemInKit("sword")) {
+        Item found = Item.forName(item);
+        return found != null && buyItem(found, costOfItem);
+    }
+
+    public boolean buyItem(Item item, int costOfItem) {
+        if (session.isSamuraiMode()) {
+            if (!hasItemInKit(Item.SWORD)) {
                 gold -= costOfItem;
             }
             addItem(item);
@@ -77,6 +144,11 @@ public class Hunter {
      * @return true if the item was successfully sold.
      */
     public boolean sellItem(String item, int buyBackPrice) {
+        Item found = Item.forName(item);
+        return found != null && sellItem(found, buyBackPrice);
+    }
+
+    public boolean sellItem(Item item, int buyBackPrice) {
         if (buyBackPrice <= 0 || !hasItemInKit(item)) {
             return false;
         }
@@ -86,67 +158,93 @@ public class Hunter {
     }
 
     /**
-     * Removes an item from the kit by setting the index of the item to null.
+     * Removes an item from the kit by clearing its bit.
      *
      * @param item The item to be removed.
      */
     public void removeItemFromKit(String item) {
-        int itmIdx = findItemInKit(item);
-
-        // if item is found
-        if (itmIdx >= 0) {
-            kit[itmIdx] = null;
+        Item found = Item.forName(item);
+        if (found != null) {
+            removeItemFromKit(found);
         }
     }
 
+    public void removeItemFromKit(Item item) {
+        kit &= ~item.getBit();
+    }
+
     /**
-     * Checks to make sure that the item is not already in the kit.
-     * If not, it assigns the item to an index in the kit with a null value ("empty" position).
+     * Checks to make sure that the item is not already in the kit and that the kit has room for it.
+     * If so, it sets the item's bit in the kit.
      *
      * @param item The item to be added to the kit.
      * @return true if the item is not in the kit and has been added.
      */
     public boolean addItem(String item) {
-        if (!hasItemInKit(item)) {
-            int idx = emptyPositionInKit();
-            kit[idx] = item;
-            return true;
+        Item found = Item.forName(item);
+        if (found == null) {
+            return false;
         }
-        return false;
+        return addItem(found);
     }
+
+    public boolean addItem(Item item) {
+        if (hasItemInKit(item) || Integer.bitCount(kit) >= kitSize) {
+            return false;
+        }
+        kit |= item.getBit();
+        return true;
+    }
+
     public boolean addTreasure(String treasure) {
-        if (Objects.equals(treasure, "dust")){
+        Treasure found = Treasure.forName(treasure);
+        if (found == null) {
+            return false;
+        }
+        return addTreasure(found);
+    }
+
+    /**
+     * Adds a treasure the hunter hasn't found before. Dust is never kept.
+     *
+     * @param treasure The treasure that was found.
+     * @return true if it was added.
+     */
+    public boolean addTreasure(Treasure treasure) {
+        if (treasure == Treasure.DUST) {
             return false;
         }
         else if (!hasTreasureAlready(treasure)) {
-            int idx = emptyPositionInTreasure();
-            treasureInv[idx] = treasure;
+            treasureInv |= treasure.getBit();
             return true;
         }
         return false;
     }
 
     /**
-     * Checks if the kit Array has the specified item.
+     * Checks if the kit has the specified item.
      *
      * @param item The search item
      * @return true if the item is found.
      */
     public boolean hasItemInKit(String item) {
-        for (String tmpItem : kit) {
-            if (item.equals(tmpItem)) {
-                // early return
-                return true;
-            }
-        }
-        return false;
+        Item found = Item.forName(item);
+        return found != null && hasItemInKit(found);
+    }
+
+    public boolean hasItemInKit(Item item) {
+        return (kit & item.getBit()) != 0;
     }
+
     public boolean hasTreasureAlready(String treasure) {
-        for (String tmpTreasure : treasureInv ) {
-            if (treasure.equals(tmpTreasure)) {
-                TreasureHunter.window.addTextToWindow("Already has " + treasure, Color.yellow);
-                return true;
-            }
+        Treasure found = Treasure.forName(treasure);
+        return found != null && hasTreasureAlready(found);
+    }
+
+    public boolean hasTreasureAlready(Treasure treasure) {
+        if ((treasureInv & treasure.getBit()) != 0) {
+            session.getOutput().addTextToWindow(ALREADY_HAS[treasure.ordinal()], TextStyle.YELLOW);
+            return true;
         }
         return false;
     }
@@ -158,116 +256,71 @@ public class Hunter {
      * @return The printable String representation of the inventory.
      */
     public String getInventory() {
-        String printableKit = "";
-        String space = " ";
-
-        for (String item : kit) {
-            if (item != null) {
-                printableKit += item + space;
+        String text = KIT_TEXT[kit];
+        if (text == null) {
+            StringBuilder printableKit = new StringBuilder(Colors.PURPLE);
+            for (Item item : Item.VALUES) {
+                if (hasItemInKit(item)) {
+                    printableKit.append(item.getName()).append(' ');
+                }
             }
+            text = printableKit.append(Colors.RESET).toString();
+            KIT_TEXT[kit] = text; // a race here just builds the same string twice
         }
-        return Color.pink + printableKit + Color.RESET;
+        return text;
     }
     public String getTreasureInv() {
-        String printableTreasureInv = "";
-        String space = " ";
-        for (String treasure : treasureInv) {
-            if (treasure != null) {
-                printableTreasureInv += treasure + space;
+        String text = TREASURE_TEXT[treasureInv];
+        if (text == null) {
+            StringBuilder printableTreasureInv = new StringBuilder(Colors.YELLOW);
+            for (Treasure treasure : Treasure.VALUES) {
+                if ((treasureInv & treasure.getBit()) != 0) {
+                    printableTreasureInv.append(treasure.getName()).append(' ');
+                }
             }
-            else if (treasure == null){
-                printableTreasureInv += "and nothing else";
+            if ((treasureInv & Treasure.ALL_TREASURES) != Treasure.ALL_TREASURES) {
+                printableTreasureInv.append("and nothing else");
             }
+            text = printableTreasureInv.append(Colors.RESET).toString();
+            TREASURE_TEXT[treasureInv] = text;
         }
-        return Color.YELLOW + printableTreasureInv;
+        return text;
     }
 
     /**
      * @return A string representation of the hunter.
      */
     public String infoString() {
-        String str = hunterName + " has " + Colors.formatGold(gold + " gold") ;
+        if (info != null && infoGold == gold && infoKit == kit && infoTreasures == treasureInv) {
+            return info;
+        }
+        StringBuilder str = new StringBuilder(hunterName).append(" has ").append(Colors.formatGold(gold + " gold"));
         if (!kitIsEmpty()) {
-            str += " and " + getInventory();
+            str.append(" and ").append(getInventory());
         }
         if (!treasureInvIsEmpty()) {
-            str += " and " + getTreasureInv();
+            str.append(" and ").append(getTreasureInv());
         }
-        return str;
+        info = str.toString();
+        infoGold = gold;
+        infoKit = kit;
+        infoTreasures = treasureInv;
+        return info;
     }
     public boolean checkWin() {
-        if (findTreasureInTreasureInv("crown") != -1 && findTreasureInTreasureInv("trophy") != -1 && findTreasureInTreasureInv("gem") != -1) {
-            return true;
-        }
-        return false;
+        return (treasureInv & Treasure.ALL_TREASURES) == Treasure.ALL_TREASURES;
     }
-    /**
-     * Searches kit Array for the index of the specified value.
-     *
-     * @param item String to look for.
-     * @return The index of the item, or -1 if not found.
-     */
-    private int findItemInKit(String item) {
-        for (int i = 0; i < kit.length; i++) {
-            String tmpItem = kit[i];
 
-            if (item.equals(tmpItem)) {
-                return i;
-            }
-        }
-        return -1;
-    }
-    private int findTreasureInTreasureInv(String treasure) {
-        for (int i = 0; i < treasureInv.length; i++) {
-            String tmpTreasure = treasureInv[i];
-            if (treasure.equals(tmpTreasure)) {
-                return i;
-            }
-        }
-        return -1;
-    }
     /**
-     * Check if the kit is empty - meaning all elements are null.
+     * Check if the kit is empty - meaning no item bits are set.
      *
      * @return true if kit is completely empty.
      */
     private boolean kitIsEmpty() {
-        for (String string : kit) {
-            if (string != null) {
-                return false;
-            }
-        }
-        return true;
+        return kit == 0;
     }
     private boolean treasureInvIsEmpty() {
-        for (String string : treasureInv){
-            if (string != null) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    /**
-     * Finds the first index where there is a null value.
-     *
-     * @return index of empty index, or -1 if not found.
-     */
-    private int emptyPositionInKit() {
-        for (int i = 0; i < kit.length; i++) {
-            if (kit[i] == null) {
-                return i;
-            }
-        }
-        return 0;
-    }
-    private int emptyPositionInTreasure() {
-        for (int i = 0; i < treasureInv.length; i++) {
-            if (treasureInv[i] == null) {
-                return i;
-            }
-        }
-        return 0;
+        return treasureInv == 0;
     }
 
     public int getGold() {
@@ -0,0 +1,114 @@
+/**
+ * The catalog of items a hunter can carry in their kit: what each one is called, what it costs,
+ * and what happens when it breaks.<p>
+ * Each item owns one bit, so a whole kit fits in a single int, and anything that needs a per-item
+ * table can index it by ordinal.
+ */
+public enum Item {
+    WATER("water", "Water", 2,
+            "Seems like you drank the last drop of your water. Should've bought more!"),
+    ROPE("rope", "Rope", 4,
+            Colors.RED + "SNAP!" + Colors.RESET + "Looks like your rope finally gave out. Better restock!"),
+    MACHETE("machete", "Machete", 6,
+            "You accidentally dropped your machete into a cavern. Looks like you'll need another one!"),
+    HORSE("horse", "Horse", 12,
+            "You got cornered by a pack of hyenas. You escaped with your life...but not your horse :("),
+    BOAT("boat", "Boat", 20,
+            "Just as you reach ashore, you crash into a pile of rocks. Looks like this boat wont be sailing the open seas anymore."),
+    BOOTS("boots", "Boots", 10,
+            "The soles of your boots gave out and its almost as if you dont even have boots on. Get a new pair!!!"),
+    SHOVEL("shovel", "Shovel", 8, ""),
+    SWORD("sword", "Sword", 0, ""); // only sold in samurai mode
+
+    // every item in ordinal order, so lookups don't copy values() each time
+    public static final Item[] VALUES = values();
+
+    // instance variables
+    private final String itemName;
+    private final String label;
+    private final int cost;
+    private final String breakMessage;
+    private final int bit;
+
+    Item(String itemName, String label, int cost, String breakMessage) {
+        this.itemName = itemName;
+        this.label = label;
+        this.cost = cost;
+        this.breakMessage = breakMessage;
+        this.bit = 1 << ordinal();
+    }
+
+    /**
+     * @return The lower case name players type for this item.
+     */
+    public String getName() {
+        return itemName;
+    }
+
+    /**
+     * @return The capitalized name the shop lists this item under.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return What the shop charges for this item.
+     */
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * Works out what a shop pays for this item.
+     *
+     * @param markdown The shop's markdown in decimal format.
+     * @return The buy-back price.
+     */
+    public int getBuyBackCost(double markdown) {
+        return (int) (cost * markdown);
+    }
+
+    /**
+     * @return What the hunter is told when this item breaks while crossing terrain.
+     */
+    public String getBreakMessage() {
+        return breakMessage;
+    }
+
+    /**
+     * @return This item's bit in a kit bit set.
+     */
+    public int getBit() {
+        return bit;
+    }
+
+    /**
+     * Finds the item a player means by a name.
+     *
+     * @param name The lower case item name.
+     * @return The item, or null if there is no item with that name.
+     */
+    public static Item forName(String name) {
+        switch (name) {
+            case "water":
+                return WATER;
+            case "rope":
+                return ROPE;
+            case "machete":
+                return MACHETE;
+            case "horse":
+                return HORSE;
+            case "boat":
+                return BOAT;
+            case "boots":
+                return BOOTS;
+            case "shovel":
+                return SHOVEL;
+            case "sword":
+                return SWORD;
+            default:
+                return null;
+        }
+    }
+}
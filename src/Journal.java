@@ -0,0 +1,207 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A record of one game: its random seed and every line the player typed, in order.<p>
+ * Since every random roll comes from the session's seed, replaying the same lines into a session
+ * with the same seed plays the game out exactly the same way, which makes any player's bug report
+ * reproducible. The rules the game was played by are kept too, every one of them, and the replay plays by
+ * those whatever rules are current when it runs, so a rules file being changed or reloaded since can't make
+ * the replay go a different way.<p>
+ * Journal files are plain text: a header line, the seed, a "rules" line giving how many rule lines follow,
+ * the rules ("mode.rule=value"), then one typed line per line.
+ */
+public class Journal {
+    // constants
+    // version 2: sessions roll with SplittableRandom, so version 1 seeds no longer replay the same game
+    // version 3: the game's rules are kept, since they can come from a file or change while the server runs
+    private static final String HEADER = "treasure-hunter-journal 3";
+    private static final String OLD_HEADER = "treasure-hunter-journal ";
+    private static final String RULES = "rules ";
+    private static final String SUFFIX = ".journal";
+    private static final GameOutput NO_OUTPUT = new NullOutput();
+
+    // instance variables
+    private final long seed;
+    private final RuleBook rules;
+    private final List<String> lines;
+
+    /**
+     * Starts an empty journal.
+     *
+     * @param seed The seed of the session being recorded.
+     * @param rules The rules the session is played by.
+     */
+    public Journal(long seed, RuleBook rules) {
+        this(seed, rules, new ArrayList<>());
+    }
+
+    private Journal(long seed, RuleBook rules, List<String> lines) {
+        this.seed = seed;
+        this.rules = rules;
+        this.lines = lines;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The rules the game was played by.
+     */
+    public RuleBook getRules() {
+        return rules;
+    }
+
+    /**
+     * @return The recorded lines, in the order the game read them.
+     */
+    public List<String> getLines() {
+        return lines;
+    }
+
+    /**
+     * Wraps an input so that every line read through it is also written into this journal.
+     *
+     * @param input The real input.
+     * @return An input to give the session instead.
+     */
+    public GameInput record(GameInput input) {
+        return new GameInput() {
+            @Override
+            public String nextLine() {
+                String line = input.nextLine();
+                if (line != null) {
+                    lines.add(line);
+                }
+                return line;
+            }
+
+            @Override
+            public boolean ready() {
+                return input.ready();
+            }
+        };
+    }
+
+    /**
+     * Plays the recorded game again with no output.
+     *
+     * @return The session after the replay has finished, for looking at how it ended.
+     */
+    public GameSession replay() {
+        return replay(NO_OUTPUT);
+    }
+
+    /**
+     * Plays the recorded game again.
+     *
+     * @param output Where to send the game's text, for watching the replay.
+     * @return The session after the replay has finished.
+     */
+    public GameSession replay(GameOutput output) {
+        GameSession session = new GameSession(new ScriptInput(lines), output, seed, rules);
+        new TreasureHunter(session).play();
+        return session;
+    }
+
+    /**
+     * Writes the journal to a new file in a directory.
+     *
+     * @param directory Where journals are kept.
+     * @return The file that was written.
+     */
+    public Path saveTo(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(Long.toHexString(seed) + "-" + System.nanoTime() + SUFFIX);
+        save(file);
+        return file;
+    }
+
+    public void save(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.newLine();
+            out.write(Long.toString(seed));
+            out.newLine();
+            List<String> ruleLines = rules.toLines();
+            out.write(RULES + ruleLines.size());
+            out.newLine();
+            for (String rule : ruleLines) {
+                out.write(rule);
+                out.newLine();
+            }
+            for (String line : lines) {
+                out.write(line);
+                out.newLine();
+            }
+        }
+    }
+
+    public static Journal load(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = in.readLine();
+            if (header != null && !header.equals(HEADER) && header.startsWith(OLD_HEADER)) {
+                // older journals don't say what rules they were played by, so they can't be trusted to replay
+                throw new IOException(file + " is an older journal (" + header + ") and can't be replayed");
+            }
+            if (!HEADER.equals(header)) {
+                throw new IOException(file + " is not a Treasure Hunter journal");
+            }
+            String seedLine = in.readLine();
+            if (seedLine == null) {
+                throw new IOException(file + " has no seed");
+            }
+            long seed;
+            try {
+                seed = Long.parseLong(seedLine);
+            } catch (NumberFormatException e) {
+                throw new IOException(file + " has a bad seed: " + seedLine, e);
+            }
+            RuleBook rules = readRules(file, in);
+            List<String> lines = new ArrayList<>();
+            String line = in.readLine();
+            while (line != null) {
+                lines.add(line);
+                line = in.readLine();
+            }
+            return new Journal(seed, rules, lines);
+        }
+    }
+
+    private static RuleBook readRules(Path file, BufferedReader in) throws IOException {
+        String countLine = in.readLine();
+        int count;
+        try {
+            count = countLine != null && countLine.startsWith(RULES) ? Integer.parseInt(countLine.substring(RULES.length())) : -1;
+        } catch (NumberFormatException e) {
+            count = -1;
+        }
+        if (count < 0) {
+            throw new IOException(file + " has no rules");
+        }
+        List<String> ruleLines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String rule = in.readLine();
+            if (rule == null) {
+                throw new IOException(file + " ends partway through its rules");
+            }
+            ruleLines.add(rule);
+        }
+        return RuleBook.fromLines(ruleLines, "the rules in " + file);
+    }
+
+    /**
+     * @param file A file name.
+     * @return true if it looks like a journal file.
+     */
+    public static boolean isJournal(Path file) {
+        return file.getFileName().toString().endsWith(SUFFIX);
+    }
+}
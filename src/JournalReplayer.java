@@ -0,0 +1,90 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replays recorded journals with no UI.<p>
+ * Given a single journal file it replays that game to the console, so a bug report can be watched
+ * turn by turn. Given a directory it replays every journal in it across all cores and reports how
+ * the games ended and how many journals per second were replayed. A journal that can't be loaded, or whose
+ * replay throws, is counted and named at the end instead of stopping the rest.
+ * Run it with: java JournalReplayer (journal file | directory)
+ */
+public class JournalReplayer {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java JournalReplayer (journal file | directory)");
+            return;
+        }
+        Path path = Path.of(args[0]);
+        if (Files.isDirectory(path)) {
+            replayAll(path);
+        } else {
+            GameSession session = Journal.load(path).replay(new ConsoleOutput(System.out));
+            System.out.println();
+            System.out.println("Replay finished after " + session.getTurns() + " turns: " + session.getHunter().infoString());
+        }
+    }
+
+    private static void replayAll(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(Journal::isJournal).collect(Collectors.toList());
+        }
+        LongAdder wins = new LongAdder();
+        LongAdder gameOvers = new LongAdder();
+        LongAdder turns = new LongAdder();
+        // one bad journal mustn't stop the rest, so problems are collected and reported at the end
+        Queue<String> skipped = new ConcurrentLinkedQueue<>();
+        Queue<String> failed = new ConcurrentLinkedQueue<>();
+        long start = System.nanoTime();
+        files.parallelStream().forEach(file -> {
+            Journal journal;
+            try {
+                journal = Journal.load(file);
+            } catch (IOException | RuntimeException e) {
+                // Journal's own messages already name the file
+                skipped.add(e instanceof IOException ? e.getMessage() : file + ": " + e);
+                return;
+            }
+            GameSession session;
+            try {
+                session = journal.replay();
+            } catch (RuntimeException e) {
+                failed.add(file + ": " + e);
+                return;
+            }
+            turns.add(session.getTurns());
+            if (session.getHunter().checkWin()) {
+                wins.increment();
+            } else if (session.getHunter().getGold() < 0) {
+                gameOvers.increment();
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long replayed = files.size() - skipped.size() - failed.size();
+        System.out.printf("Replayed %d journals (%d turns) in %.2f s: %.0f journals/sec%n",
+                replayed, turns.sum(), seconds, replayed / seconds);
+        System.out.printf("%d won, %d game over, %d quit%n",
+                wins.sum(), gameOvers.sum(), replayed - wins.sum() - gameOvers.sum());
+        report("couldn't be loaded", skipped);
+        report("failed partway through the replay", failed);
+    }
+
+    private static void report(String what, Queue<String> journals) {
+        if (journals.isEmpty()) {
+            return;
+        }
+        System.out.println(journals.size() + " journals " + what + ":");
+        for (String journal : journals) {
+            System.out.println("  " + journal);
+        }
+    }
+}
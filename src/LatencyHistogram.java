@@ -0,0 +1,126 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-bucket histogram of durations in nanoseconds that any number of threads can record into
+ * at once without locking.<p>
+ * Buckets double in width, and each doubling is split into 8 equal steps, so a percentile read back
+ * from it is never more than 12.5% above the real value.
+ */
+public class LatencyHistogram {
+    // constants
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    // instance variables
+    private final LongAdder[] counts;
+    private final LongAdder total;
+
+    public LatencyHistogram() {
+        counts = new LongAdder[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+        total = new LongAdder();
+    }
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos How long it took; negative values count as zero.
+     */
+    public void record(long nanos) {
+        counts[bucketOf(Math.max(nanos, 0))].increment();
+        total.add(Math.max(nanos, 0));
+    }
+
+    /**
+     * @return How many durations have been recorded.
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return The average recorded duration in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public double getMean() {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        return (double) total.sum() / count;
+    }
+
+    /**
+     * Finds the duration that the given fraction of recordings were at or below.
+     *
+     * @param fraction For example 0.99 for the 99th percentile.
+     * @return The upper edge of the bucket holding that percentile, in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double fraction) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(count * fraction));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    /**
+     * @return How many buckets every histogram has.
+     */
+    public static int getBucketCount() {
+        return BUCKETS;
+    }
+
+    /**
+     * @param bucket A bucket index.
+     * @return How many recordings have landed in that bucket.
+     */
+    public long getBucket(int bucket) {
+        return counts[bucket].sum();
+    }
+
+    /**
+     * @param bucket A bucket index.
+     * @return The largest duration, in nanoseconds, that lands in that bucket.
+     */
+    public static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long step = bucket % SUB_BUCKETS;
+        long bound = ((SUB_BUCKETS + step + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        if (bound < 0) {
+            return Long.MAX_VALUE; // the very last bucket runs off the end of a long
+        }
+        return bound;
+    }
+
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int step = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + step;
+    }
+}
@@ -0,0 +1,548 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Every finished game, ranked, kept in a directory so it survives restarts.<p>
+ * In memory there are two parts. The best getCapacity() scores are kept in a ConcurrentSkipListSet,
+ * so top(k) just walks the front of it. Every game ever recorded is also counted in a Fenwick tree
+ * indexed by its Score key, so a rank is a couple of dozen array reads however many games there
+ * have been. Both take any number of games finishing at once without a lock.<p>
+ * On disk each game is appended to a log file as a fixed-size Score record, written straight into a
+ * memory-mapped chunk of the file at a slot handed out by an AtomicLong, so recording never waits on
+ * a write call. Every so often compact() folds the logs into a snapshot file holding the count of games
+ * at each key plus the top scores, then deletes them; the only lock is the moment the current log
+ * is swapped for a fresh one. Opening the directory again loads the snapshot and replays whatever logs
+ * came after it.<p>
+ * A snapshot is a header (magic "THLB", version, the last log generation it covers, the next game id,
+ * the number of keys counted and the number of scores kept), then (key, count) pairs, then Score records.
+ * Run it with: java Leaderboard directory [games to record] [threads] to time recording and reopening.
+ */
+public class Leaderboard {
+    // constants
+    public static final int DEFAULT_CAPACITY = 10000;
+    private static final int MAGIC = 0x54484c42; // "THLB"
+    private static final short VERSION = 1;
+    private static final int HEADER = 32;
+    private static final int CHUNK_RECORDS = 1 << 16;
+    private static final int CHUNK_BYTES = CHUNK_RECORDS * Score.RECORD; // 4 MB mapped at a time
+    private static final String SNAPSHOT = "leaderboard.snapshot";
+    private static final String LOG_PREFIX = "leaderboard-";
+    private static final String LOG_SUFFIX = ".log";
+
+    // instance variables
+    private final Path directory;
+    private final int capacity;
+    private final ConcurrentSkipListSet<Score> top;
+    private final AtomicInteger kept;
+    private final AtomicIntegerArray counts; // Fenwick tree: games by Score key, 1-based
+    private final AtomicLong nextId;
+    private final ReentrantReadWriteLock logLock; // read to append, write to swap logs
+    private final Object compacting;
+    private Log log;
+
+    private Leaderboard(Path directory, int capacity) {
+        this.directory = directory;
+        this.capacity = capacity;
+        top = new ConcurrentSkipListSet<>();
+        kept = new AtomicInteger();
+        counts = new AtomicIntegerArray(Score.KEYS + 1);
+        nextId = new AtomicLong();
+        logLock = new ReentrantReadWriteLock();
+        compacting = new Object();
+    }
+
+    /**
+     * Opens the leaderboard kept in a directory, making it if need be, with the default capacity.
+     */
+    public static Leaderboard open(Path directory) throws IOException {
+        return open(directory, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Opens the leaderboard kept in a directory: loads the snapshot, replays any logs written after it,
+     * and starts a new log for the games to come.
+     *
+     * @param directory Where the leaderboard is kept.
+     * @param capacity How many of the best scores to keep by name; every game still counts towards ranks.
+     */
+    public static Leaderboard open(Path directory, int capacity) throws IOException {
+        Files.createDirectories(directory);
+        Leaderboard board = new Leaderboard(directory, Math.max(1, capacity));
+        long[] idAfter = {0};
+        long snapshotThrough = 0;
+        Path snapshot = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            snapshotThrough = readSnapshot(snapshot, (key, count) -> board.count(key, count), score -> {
+                board.keep(score);
+                idAfter[0] = Math.max(idAfter[0], score.getId() + 1);
+            }, idAfter);
+        }
+        long generation = snapshotThrough;
+        for (long logGeneration : board.logGenerations(Long.MAX_VALUE)) {
+            // a log the snapshot already covers is only still here if a crash came before it could be deleted
+            if (logGeneration > snapshotThrough) {
+                readLog(board.logFile(logGeneration), score -> {
+                    board.count(score.getKey(), 1);
+                    board.keep(score);
+                    idAfter[0] = Math.max(idAfter[0], score.getId() + 1);
+                });
+            }
+            generation = Math.max(generation, logGeneration);
+        }
+        board.nextId.set(idAfter[0]);
+        board.log = new Log(board.logFile(generation + 1), generation + 1);
+        return board;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: java Leaderboard directory [games to record] [threads]");
+            return;
+        }
+        Path directory = Path.of(args[0]);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+        Leaderboard board = open(directory);
+        System.out.printf("Opened %d games in %.0f ms%n", board.getGames(), (System.nanoTime() - start) / 1e6);
+        if (games > 0) {
+            start = System.nanoTime();
+            try (ExecutorService players = Executors.newFixedThreadPool(threads)) {
+                for (int t = 0; t < threads; t++) {
+                    int share = games / threads + (t < games % threads ? 1 : 0);
+                    players.submit(() -> board.recordRandomGames(share));
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Recorded %d games on %d threads in %.2f s (%.0f games/sec)%n", games, threads, seconds, games / seconds);
+            start = System.nanoTime();
+            for (int i = 0; i < 100000; i++) {
+                board.rank(true, 20 + (i & 63), i & 127);
+            }
+            System.out.printf("Rank queries: %.0f ns each%n", (System.nanoTime() - start) / 1e5);
+            start = System.nanoTime();
+            board.compact();
+            System.out.printf("Compacted in %.0f ms%n", (System.nanoTime() - start) / 1e6);
+        }
+        List<Score> best = board.top(10);
+        for (int i = 0; i < best.size(); i++) {
+            System.out.println("#" + (i + 1) + " " + best.get(i));
+        }
+        board.close();
+    }
+
+    /**
+     * Records a finished game. Safe to call from any number of threads at once.
+     *
+     * @param name The hunter's name, without color codes.
+     * @param mode The mode answer: "e", "n", "h" or "s".
+     * @param turns How many turns the game lasted.
+     * @param gold The hunter's gold at the end.
+     * @param won Whether the hunter found all three treasures.
+     * @return The score as recorded.
+     * @throws UncheckedIOException If the log couldn't be grown to hold it; the game still counts in memory.
+     */
+    public Score record(String name, String mode, int turns, int gold, boolean won) {
+        Score score = new Score(nextId.getAndIncrement(), name, mode, turns, gold, won);
+        count(score.getKey(), 1);
+        keep(score);
+        logLock.readLock().lock();
+        try {
+            log.append(score);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            logLock.readLock().unlock();
+        }
+        return score;
+    }
+
+    /**
+     * @param k How many scores to list.
+     * @return The k best scores (or all of them, if there are fewer), best first.
+     */
+    public List<Score> top(int k) {
+        List<Score> best = new ArrayList<>(Math.min(k, capacity));
+        Iterator<Score> scores = top.iterator();
+        while (best.size() < k && scores.hasNext()) {
+            best.add(scores.next());
+        }
+        return best;
+    }
+
+    /**
+     * @return Where a score stands: 1 plus the number of games that beat it outright.
+     */
+    public long rankOf(Score score) {
+        return rank(score.isWon(), score.getTurns(), score.getGold());
+    }
+
+    /**
+     * @return Where a game that ended like this would stand: 1 plus the number of games that beat it outright.
+     */
+    public long rank(boolean won, int turns, int gold) {
+        int key = Score.keyOf(won, turns, gold);
+        return 1 + countBelow(Score.KEYS) - countBelow(key + 1);
+    }
+
+    /**
+     * @return How many games have been recorded, ever.
+     */
+    public long getGames() {
+        return countBelow(Score.KEYS);
+    }
+
+    /**
+     * @return How many of the best scores are kept by name.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Folds every finished log into the snapshot and deletes it. Recording carries on meanwhile, into a fresh
+     * log; only the swap to that log holds recorders up. The new snapshot is written to a temporary
+     * file and moved into place, so a crash at any point leaves either the old state or the new one.
+     */
+    public void compact() throws IOException {
+        synchronized (compacting) {
+            Log old;
+            logLock.writeLock().lock();
+            try {
+                if (log.isEmpty() && logGenerations(log.generation - 1).isEmpty()) {
+                    return;
+                }
+                old = log;
+                log = new Log(logFile(old.generation + 1), old.generation + 1);
+            } finally {
+                logLock.writeLock().unlock();
+            }
+            old.close();
+            fold(old.generation);
+        }
+    }
+
+    /**
+     * Compacts on a background thread every so often, for as long as the process runs.
+     *
+     * @param seconds How often.
+     * @return The scheduler doing the compacting; shut it down to stop.
+     */
+    public ScheduledExecutorService startCompacting(long seconds) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "leaderboard-compact");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.err.println("Leaderboard compaction failed: " + e.getMessage());
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
+        return scheduler;
+    }
+
+    /**
+     * Makes sure everything recorded so far is on disk and stops recording to the log.
+     */
+    public void close() throws IOException {
+        logLock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            logLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds games to the Fenwick tree.
+     */
+    private void count(int key, int games) {
+        for (int i = key + 1; i <= Score.KEYS; i += i & -i) {
+            counts.getAndAdd(i, games);
+        }
+    }
+
+    /**
+     * @return How many games have a key below the given one.
+     */
+    private long countBelow(int key) {
+        long games = 0;
+        for (int i = key; i > 0; i -= i & -i) {
+            games += counts.get(i);
+        }
+        return games;
+    }
+
+    /**
+     * Adds a score to the best ones if it is good enough, dropping the worst if there are too many.
+     */
+    private void keep(Score score) {
+        if (kept.get() >= capacity) {
+            Iterator<Score> worst = top.descendingIterator();
+            if (worst.hasNext() && score.compareTo(worst.next()) > 0) {
+                return;
+            }
+        }
+        top.add(score);
+        if (kept.incrementAndGet() > capacity && top.pollLast() != null) {
+            kept.decrementAndGet();
+        }
+    }
+
+    private void recordRandomGames(int games) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < games; i++) {
+            boolean won = random.nextInt(3) == 0;
+            record("bot" + random.nextInt(1000), "enhs".substring(i & 3, (i & 3) + 1), 5 + random.nextInt(60),
+                    random.nextInt(won ? 80 : 30), won);
+        }
+    }
+
+    /**
+     * Merges the snapshot and every log up to a generation into a new snapshot, then deletes those logs.
+     */
+    private void fold(long through) throws IOException {
+        int[] histogram = new int[Score.KEYS];
+        TreeSet<Score> best = new TreeSet<>();
+        Path snapshot = directory.resolve(SNAPSHOT);
+        long previous = 0;
+        if (Files.exists(snapshot)) {
+            previous = readSnapshot(snapshot, (key, count) -> histogram[key] += count, score -> keepBest(best, score), new long[1]);
+        }
+        List<Long> folded = logGenerations(through);
+        for (long generation : folded) {
+            if (generation > previous) {
+                readLog(logFile(generation), score -> {
+                    histogram[score.getKey()]++;
+                    keepBest(best, score);
+                });
+            }
+        }
+        writeSnapshot(snapshot, through, nextId.get(), histogram, best);
+        for (long generation : folded) {
+            Files.deleteIfExists(logFile(generation));
+        }
+    }
+
+    private void keepBest(TreeSet<Score> best, Score score) {
+        best.add(score);
+        if (best.size() > capacity) {
+            best.pollLast();
+        }
+    }
+
+    private Path logFile(long generation) {
+        return directory.resolve(LOG_PREFIX + generation + LOG_SUFFIX);
+    }
+
+    /**
+     * @return The generations of the log files in the directory, up to and including the given one, oldest first.
+     */
+    private List<Long> logGenerations(long through) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Iterator<Path> it = files.iterator(); it.hasNext(); ) {
+                String name = it.next().getFileName().toString();
+                if (name.startsWith(LOG_PREFIX) && name.endsWith(LOG_SUFFIX)) {
+                    try {
+                        long generation = Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+                        if (generation <= through) {
+                            generations.add(generation);
+                        }
+                    } catch (NumberFormatException e) {
+                        // not one of ours
+                    }
+                }
+            }
+        }
+        generations.sort(null);
+        return generations;
+    }
+
+    /**
+     * Reads every complete record in a log, skipping slots that were never written or were cut short.
+     */
+    private static void readLog(Path file, Consumer<Score> scores) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long offset = 0; offset < size; offset += CHUNK_BYTES) {
+                int length = (int) Math.min(CHUNK_BYTES, size - offset);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                for (int at = 0; at + Score.RECORD <= length; at += Score.RECORD) {
+                    Score score = Score.read(chunk, at);
+                    if (score != null) {
+                        scores.accept(score);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot written by writeSnapshot().
+     *
+     * @param idAfter Gets the first id not yet handed out when the snapshot was written.
+     * @return The last log generation the snapshot covers.
+     */
+    private static long readSnapshot(Path file, KeyCounts counts, Consumer<Score> scores, long[] idAfter)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER || buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a leaderboard snapshot");
+            }
+            if (buffer.getShort(4) != VERSION) {
+                throw new IOException("Unsupported leaderboard snapshot version " + buffer.getShort(4));
+            }
+            long through = buffer.getLong(8);
+            idAfter[0] = Math.max(idAfter[0], buffer.getLong(16));
+            int keys = buffer.getInt(24);
+            int records = buffer.getInt(28);
+            if (keys < 0 || records < 0 || buffer.remaining() != HEADER + 8L * keys + (long) Score.RECORD * records) {
+                throw new IOException("Corrupt leaderboard snapshot: bad size");
+            }
+            int at = HEADER;
+            for (int i = 0; i < keys; i++, at += 8) {
+                int key = buffer.getInt(at);
+                if (key < 0 || key >= Score.KEYS) {
+                    throw new IOException("Corrupt leaderboard snapshot: bad key");
+                }
+                counts.add(key, buffer.getInt(at + 4));
+            }
+            for (int i = 0; i < records; i++, at += Score.RECORD) {
+                Score score = Score.read(buffer, at);
+                if (score == null) {
+                    throw new IOException("Corrupt leaderboard snapshot: bad score");
+                }
+                scores.accept(score);
+            }
+            return through;
+        }
+    }
+
+    private static void writeSnapshot(Path file, long through, long idAfter, int[] histogram, TreeSet<Score> best)
+            throws IOException {
+        int keys = 0;
+        for (int count : histogram) {
+            if (count != 0) {
+                keys++;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + 8 * keys + Score.RECORD * best.size());
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) 0);
+        buffer.putLong(through);
+        buffer.putLong(idAfter);
+        buffer.putInt(keys);
+        buffer.putInt(best.size());
+        for (int key = 0; key < histogram.length; key++) {
+            if (histogram[key] != 0) {
+                buffer.putInt(key);
+                buffer.putInt(histogram[key]);
+            }
+        }
+        for (Score score : best) {
+            score.write(buffer, buffer.position());
+            buffer.position(buffer.position() + Score.RECORD);
+        }
+        buffer.flip();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Takes the (key, count) pairs read from a snapshot.
+     */
+    private interface KeyCounts {
+        void add(int key, int count);
+    }
+
+    /**
+     * One append-only log file. Records go into memory-mapped chunks of it, which are mapped as they're needed.
+     */
+    private static final class Log {
+        private final long generation;
+        private final FileChannel channel;
+        private final AtomicLong next; // the next free slot
+        private volatile MappedByteBuffer[] chunks;
+
+        Log(Path file, long generation) throws IOException {
+            this.generation = generation;
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            next = new AtomicLong();
+            chunks = new MappedByteBuffer[0];
+        }
+
+        boolean isEmpty() {
+            return next.get() == 0;
+        }
+
+        void append(Score score) throws IOException {
+            long slot = next.getAndIncrement();
+            MappedByteBuffer chunk = chunk((int) (slot / CHUNK_RECORDS));
+            score.write(chunk, (int) (slot % CHUNK_RECORDS) * Score.RECORD);
+        }
+
+        private MappedByteBuffer chunk(int index) throws IOException {
+            MappedByteBuffer[] mapped = chunks;
+            if (index < mapped.length) {
+                return mapped[index];
+            }
+            synchronized (this) {
+                mapped = chunks;
+                if (index >= mapped.length) {
+                    // mapping past the end of the file grows it
+                    MappedByteBuffer[] grown = Arrays.copyOf(mapped, index + 1);
+                    for (int i = mapped.length; i <= index; i++) {
+                        grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * CHUNK_BYTES, CHUNK_BYTES);
+                    }
+                    chunks = grown;
+                    mapped = grown;
+                }
+                return mapped[index];
+            }
+        }
+
+        void close() throws IOException {
+            for (MappedByteBuffer chunk : chunks) {
+                chunk.force();
+            }
+            channel.close();
+        }
+    }
+}
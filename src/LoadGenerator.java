@@ -0,0 +1,126 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pretends to be lots of players at once against a SessionServer and reports how it holds up.<p>
+ * Each fake player runs on its own virtual thread, plays a fixed round of moves (optionally waiting
+ * between them to act like a person), and starts a new game whenever the server ends one.
+ * Run it with: java LoadGenerator [host] [port] [players] [seconds] [think time in ms]
+ */
+public class LoadGenerator {
+    // constants
+    private static final String[] MOVES = {"e", "h", "d", "b", "water", "n", "s", "water", "n", "l"};
+
+    // instance variables
+    private final String host;
+    private final int port;
+    private final LongAdder sessions;
+    private final LongAdder failures;
+    private final LatencyHistogram latency;
+
+    public LoadGenerator(String host, int port) {
+        this.host = host;
+        this.port = port;
+        sessions = new LongAdder();
+        failures = new LongAdder();
+        latency = new LatencyHistogram();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : SessionServer.DEFAULT_PORT;
+        int players = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+        long thinkMillis = args.length > 4 ? Long.parseLong(args[4]) : 0;
+
+        LoadGenerator generator = new LoadGenerator(host, port);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < players; i++) {
+                int player = i;
+                threads.submit(() -> generator.runPlayer(player, deadline, thinkMillis));
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        generator.printReport(players, elapsed);
+    }
+
+    /**
+     * Plays game after game as one fake player until the deadline passes.
+     */
+    private void runPlayer(int player, long deadline, long thinkMillis) {
+        int move = player % MOVES.length; // spread the players out over the round of moves
+        while (System.nanoTime() < deadline) {
+            try (Socket socket = new Socket(host, port)) {
+                socket.setTcpNoDelay(true);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                sessions.increment();
+                if (!readFrame(in) || !send(in, out, "player" + player) || !send(in, out, "e")) {
+                    continue;
+                }
+                boolean playing = true;
+                while (playing && System.nanoTime() < deadline) {
+                    if (thinkMillis > 0) {
+                        Thread.sleep(thinkMillis);
+                    }
+                    playing = send(in, out, MOVES[move]);
+                    move = (move + 1) % MOVES.length;
+                }
+            } catch (IOException e) {
+                failures.increment();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends one line and times how long it takes for the server's whole answer to come back.
+     *
+     * @return false if the server hung up instead of answering.
+     */
+    private boolean send(BufferedReader in, Writer out, String line) throws IOException {
+        long start = System.nanoTime();
+        out.write(line);
+        out.write('\n');
+        out.flush();
+        boolean answered = readFrame(in);
+        if (answered) {
+            latency.record(System.nanoTime() - start);
+        }
+        return answered;
+    }
+
+    /**
+     * Reads lines until the end-of-frame marker.
+     *
+     * @return false if the connection closed first.
+     */
+    private static boolean readFrame(BufferedReader in) throws IOException {
+        String line = in.readLine();
+        while (line != null && !line.equals(SocketOutput.END_OF_FRAME)) {
+            line = in.readLine();
+        }
+        return line != null;
+    }
+
+    private void printReport(int players, double seconds) {
+        long commands = latency.getCount();
+        System.out.printf("%d players for %.1f s: %d sessions (%.1f sessions/sec), %d commands (%.0f commands/sec), %d connection errors%n",
+                players, seconds, sessions.sum(), sessions.sum() / seconds, commands, commands / seconds, failures.sum());
+        System.out.printf("Command latency: mean %.1f us, p50 %.1f us, p99 %.1f us, p99.9 %.1f us%n",
+                latency.getMean() / 1e3, latency.getPercentile(0.50) / 1e3,
+                latency.getPercentile(0.99) / 1e3, latency.getPercentile(0.999) / 1e3);
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A shared economy for every shop in every session: each shop keeps its own stock of each item,
+ * and prices go up as stock sells out and down as hunters sell things back.<p>
+ * The only shared state is one stock count per shop per item, and every trade is a single compare-and-set
+ * on that count, so there is no lock anywhere. Each count sits on its own cache line, so busy items like
+ * the boat and the horse don't slow down trades in anything else. Prices are looked up from a table
+ * by stock level, so a trade never does any math either.<p>
+ * Trading with a market isn't repeatable (the price depends on what everyone else has been doing),
+ * so only sessions that are given one use it; everything else keeps the fixed catalog prices.
+ * Run it with: java Market [threads] [seconds] [shops] to see how many trades per second it takes.
+ */
+public class Market {
+    // constants
+    static final int TARGET_STOCK = 16;
+    static final int MAX_STOCK = 2 * TARGET_STOCK;
+    private static final int STRIDE = 16; // ints per count: 64 bytes, one cache line
+    private static final int ITEMS = Item.VALUES.length;
+
+    // instance variables
+    private final int shops;
+    private final AtomicIntegerArray stock;
+    private final int[][] prices; // [item][stock]: what one costs at that stock level
+    private final LongAdder trades;
+
+    /**
+     * Opens a market where every shop starts with TARGET_STOCK of everything at catalog prices.
+     *
+     * @param shops How many shops there are.
+     */
+    public Market(int shops) {
+        this.shops = shops;
+        stock = new AtomicIntegerArray(shops * ITEMS * STRIDE);
+        for (int i = 0; i < shops * ITEMS; i++) {
+            stock.set(i * STRIDE, TARGET_STOCK);
+        }
+        // catalog price at the target stock, twice that when nearly sold out, half when overstocked
+        prices = new int[ITEMS][MAX_STOCK + 1];
+        for (Item item : Item.VALUES) {
+            for (int level = 1; level <= MAX_STOCK; level++) {
+                double scale = Math.pow(2, (double) (TARGET_STOCK - level) / TARGET_STOCK);
+                prices[item.ordinal()][level] = (int) Math.round(item.getCost() * scale);
+            }
+        }
+        trades = new LongAdder();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int shops = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        Market market = new Market(shops);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+        try (ExecutorService traders = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                traders.submit(() -> market.trade(deadline));
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d threads, %d shops: %d trades in %.1f s (%.0f trades/sec)%n",
+                threads, shops, market.getTrades(), elapsed, market.getTrades() / elapsed);
+    }
+
+    /**
+     * @return A shop for a new town to use.
+     */
+    public int pickShop() {
+        return ThreadLocalRandom.current().nextInt(shops);
+    }
+
+    /**
+     * @return How much the item costs in the shop right now, or 0 if it's sold out.
+     */
+    public int getPrice(int shop, Item item) {
+        return prices[item.ordinal()][stock.get(slot(shop, item))];
+    }
+
+    /**
+     * @return How many the shop has right now.
+     */
+    public int getStock(int shop, Item item) {
+        return stock.get(slot(shop, item));
+    }
+
+    /**
+     * What the shop would pay for one more, before the mode's markdown.
+     *
+     * @return The price, or 0 if the shop is full up and won't buy any more.
+     */
+    public int getSellPrice(int shop, Item item) {
+        int level = stock.get(slot(shop, item));
+        return level >= MAX_STOCK ? 0 : prices[item.ordinal()][level + 1];
+    }
+
+    /**
+     * Buys one of an item, as long as it's in stock and costs no more than the buyer can pay.
+     *
+     * @param shop The shop.
+     * @param item The item.
+     * @param most The most the buyer can pay.
+     * @return What it cost, or -1 if it was sold out or too expensive.
+     */
+    public int buy(int shop, Item item, int most) {
+        int slot = slot(shop, item);
+        while (true) {
+            int level = stock.get(slot);
+            if (level == 0) {
+                return -1;
+            }
+            int price = prices[item.ordinal()][level];
+            if (price > most) {
+                return -1;
+            }
+            if (stock.compareAndSet(slot, level, level - 1)) {
+                trades.increment();
+                return price;
+            }
+        }
+    }
+
+    /**
+     * Sells one of an item to the shop.
+     *
+     * @param shop The shop.
+     * @param item The item.
+     * @return What the shop pays before markdown, or 0 if it won't take any more.
+     */
+    public int sell(int shop, Item item) {
+        int slot = slot(shop, item);
+        while (true) {
+            int level = stock.get(slot);
+            if (level >= MAX_STOCK) {
+                return 0;
+            }
+            if (stock.compareAndSet(slot, level, level + 1)) {
+                trades.increment();
+                return prices[item.ordinal()][level + 1];
+            }
+        }
+    }
+
+    /**
+     * Moves every shop's stock of everything one step back towards TARGET_STOCK.
+     */
+    public void restock() {
+        for (int i = 0; i < shops * ITEMS; i++) {
+            int slot = i * STRIDE;
+            int level = stock.get(slot);
+            if (level != TARGET_STOCK) {
+                // if a trade got there first, just leave it until next time
+                stock.compareAndSet(slot, level, level < TARGET_STOCK ? level + 1 : level - 1);
+            }
+        }
+    }
+
+    /**
+     * Restocks on a background thread every so often, for as long as the process runs.
+     *
+     * @param seconds How often.
+     * @return The scheduler doing the restocking; shut it down to stop.
+     */
+    public ScheduledExecutorService startRestocking(long seconds) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "market-restock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::restock, seconds, seconds, TimeUnit.SECONDS);
+        return scheduler;
+    }
+
+    /**
+     * @return How many trades have gone through.
+     */
+    public long getTrades() {
+        return trades.sum();
+    }
+
+    public int getShopCount() {
+        return shops;
+    }
+
+    private static int slot(int shop, Item item) {
+        return (shop * ITEMS + item.ordinal()) * STRIDE;
+    }
+
+    /**
+     * Buys and sells random items as fast as it can, mostly the boat and the horse, until the deadline.
+     */
+    private void trade(long deadline) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 1000; i++) {
+                Item item = random.nextBoolean() ? (random.nextBoolean() ? Item.BOAT : Item.HORSE) : Item.VALUES[random.nextInt(ITEMS)];
+                int shop = random.nextInt(shops);
+                if (random.nextBoolean()) {
+                    buy(shop, item, Integer.MAX_VALUE);
+                } else {
+                    sell(shop, item);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * A GameOutput that throws everything away, for bots and simulations where nobody is watching.
+ */
+public class NullOutput implements GameOutput {
+
+    @Override
+    public void addTextToWindow(String text, TextStyle style) {
+    }
+
+    @Override
+    public void prompt(String text) {
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    @Override
+    public void flush() {
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Plays by a PolicyTable, so every move is the best one there is for the mode the table was solved for.
+ */
+public class OptimalStrategy implements Strategy {
+    // instance variables
+    private final PolicyTable table;
+
+    /**
+     * @param table A table solved for the mode this strategy will play.
+     */
+    public OptimalStrategy(PolicyTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public String nextMove(GameSession session) {
+        return table.getMove(session);
+    }
+}
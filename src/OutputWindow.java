@@ -1,40 +1,142 @@
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import javax.swing.JFrame;
 import javax.swing.JTextPane;
-import javax.swing.text.Style;
+import javax.swing.SwingUtilities;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.SimpleAttributeSet;
 import javax.swing.text.StyleConstants;
 import javax.swing.text.StyledDocument;
 
-public class OutputWindow {
+/**
+ * Shows the game in a Swing window.<p>
+ * Nothing but this class touches AWT or Swing, so games played any other way (HeadlessRunner, bots,
+ * the server) never load them; and even here the window is built in the background.<p>
+ * Text added during a turn is collected into a frame on the game thread and only handed to Swing when
+ * flush() is called, as one task on the event thread. That way the window repaints once per turn instead
+ * of once per line, and the game thread never touches the document or its styles.<p>
+ * The escape codes messages are colored with are turned into runs of styled text, so names, gold and
+ * so on show up in color here just like in a terminal.
+ */
+public class OutputWindow implements GameOutput {
+    // constants
+    private static final int FONT_SIZE = 25;
 
-    private StyledDocument doc;
-    private Style style;
-    private JTextPane textPane;
+    // instance variables
+    private JTextPane textPane; // only touched by the event thread
+    private List<Line> frame; // only touched by the game thread
+    private boolean frameCleared;
+    private Map<TextStyle, SimpleAttributeSet> styles; // only touched by the event thread
+    private StyledText spans; // only touched by the event thread
 
+    /**
+     * Asks for the window and returns straight away; the window itself is built on the event thread while
+     * the game gets going. Every frame is also shown from the event thread, queued after the window is
+     * built, so nothing can be shown before there's somewhere to show it.
+     */
     public OutputWindow() {
+        this.frame = new ArrayList<>();
+        frameCleared = false;
+        styles = new EnumMap<>(TextStyle.class);
+        spans = new StyledText();
+        SwingUtilities.invokeLater(this::open);
+    }
+
+    /**
+     * Builds and shows the window. Runs on the event thread.
+     */
+    private void open() {
         JFrame frame = new JFrame("Test");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // causes program to end when window is X'd out
         frame.setSize(500, 400); // window size
         frame.setLocation(300, 50); // where on screen window appears
         textPane = new JTextPane(); // panel that can handle custom text
         textPane.setEditable(false); // prevents user from typing into window
-        doc = textPane.getStyledDocument(); // call getter method for panel's style doc
-        style = doc.addStyle("my style", null); // add a custom style to the doc
-        StyleConstants.setFontSize(style, 25); // apply font size to custom style
         frame.add(textPane); // add the panel to the frame
         frame.setVisible(true); // display the frame on screen
     }
 
-    public void addTextToWindow(String text, Color color) {
-        StyleConstants.setForeground(style, color); // apply color to custom style
+    @Override
+    public void addTextToWindow(String text, TextStyle style) {
+        frame.add(new Line(text, style));
+    }
+
+    @Override
+    public void prompt(String text) {
+        System.out.print(text); // questions go to the console, where the player types the answer
+    }
+
+    @Override
+    public void clear() {
+        // anything not flushed yet would be wiped anyway, so don't bother sending it
+        frame.clear();
+        frameCleared = true;
+    }
+
+    @Override
+    public void flush() {
+        if (frame.isEmpty() && !frameCleared) {
+            return;
+        }
+        List<Line> lines = frame;
+        boolean cleared = frameCleared;
+        frame = new ArrayList<>();
+        frameCleared = false;
+        SwingUtilities.invokeLater(() -> showFrame(lines, cleared));
+    }
+
+    /**
+     * Puts a whole frame on screen in one go. Runs on the event thread.<p>
+     * A frame that starts with a clear is built into a fresh document and swapped in,
+     * otherwise its lines are added to the end of the current one.
+     */
+    private void showFrame(List<Line> lines, boolean cleared) {
+        StyledDocument doc;
+        if (cleared) {
+            doc = new DefaultStyledDocument();
+        } else {
+            doc = textPane.getStyledDocument();
+        }
         try {
-            doc.insertString(doc.getLength(), text + "\n", style); } // insert text at end the panel
-        catch (Exception e) {
+            for (Line line : lines) {
+                spans.reset(line.text, line.style);
+                while (spans.next()) {
+                    doc.insertString(doc.getLength(), line.text.substring(spans.getStart(), spans.getEnd()), styleFor(spans.getStyle()));
+                }
+                doc.insertString(doc.getLength(), "\n", styleFor(line.style)); // insert text at end the panel
+            }
+        } catch (Exception e) {
             System.out.println(e.getMessage());
         }
+        if (cleared) {
+            textPane.setStyledDocument(doc);
+        }
     }
 
-    public void clear() {
-        textPane.setText("");  // set panel's text to empty string to "reset it"
+    private SimpleAttributeSet styleFor(TextStyle textStyle) {
+        SimpleAttributeSet style = styles.get(textStyle);
+        if (style == null) {
+            style = new SimpleAttributeSet();
+            StyleConstants.setFontSize(style, FONT_SIZE);
+            StyleConstants.setForeground(style, new Color(textStyle.getRgb()));
+            styles.put(textStyle, style);
+        }
+        return style;
+    }
+
+    /**
+     * One line of text waiting to be shown, and its style.
+     */
+    private static final class Line {
+        private final String text;
+        private final TextStyle style;
+
+        Line(String text, TextStyle style) {
+            this.text = text;
+            this.style = style;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,15 @@
-import java.awt.Color;
 
 public class Player {
     private String name;
-    private OutputWindow window;
+    private GameOutput window;
 
-    public Player(String name, OutputWindow window) {
+    public Player(String name, GameOutput window) {
         this.name = name;
         this.window = window;
     }
 
     public void welcome() {
         window.clear();
-        window.addTextToWindow("Welcome " + name, Color.blue);
+        window.addTextToWindow("Welcome " + name, TextStyle.BLUE);
     }
 }
\ No newline at end of file
@@ -0,0 +1,436 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Works out the best possible way to play each mode by value iteration over every state the game can be in,
+ * and how likely a perfect player is to win.<p>
+ * The odds come straight from the game: the mode's GameRules for brawls, digging, broken items, toughness and
+ * markdown (from the RuleBook that is current when the solver is made), and the prices from Shop. Gold above the cap
+ * is counted as the cap, which can only make the answer slightly pessimistic.<p>
+ * Values are kept in one flat float array laid out like PolicyTable, and every sweep is split into blocks
+ * that run on the common fork-join pool and update their states in place (asynchronous value iteration,
+ * which converges just like the textbook version but needs fewer sweeps). Each move is worth very slightly
+ * less than the same win a turn sooner, so the table never picks a move that goes round in circles, such
+ * as buying and selling the same thing in easy mode; the win chance it reports is then worked out again
+ * for the finished table without that discount.<p>
+ * Run it with: java PolicySolver [gold cap] [modes, e.g. enhs] [directory to save tables in] [games to check with]
+ */
+public class PolicySolver {
+    // constants
+    private static final int DEFAULT_GOLD_CAP = 100;
+    private static final float DISCOUNT = 0.9999f;
+    private static final float TOLERANCE = 1e-6f;
+    private static final int MAX_SWEEPS = 100_000;
+    private static final int MAX_ROW_PASSES = 1000;
+    private static final int BLOCKS_PER_TASK = 8;
+    private static final int UNAVAILABLE = -1;
+    private static final int SOLVE = 0;
+    private static final int CHOOSE = 1;
+    private static final int EVALUATE = 2;
+
+    // instance variables
+    private final String mode;
+    private final int goldCap;
+    private final int golds;
+    private final int kitItems;
+    private final boolean samurai;
+    private final double toughness;
+    private final double breakChance;
+    private final int startingGold;
+    private final GameRules rules;
+    private final int[] buyCost; // by Item ordinal
+    private final int[] sellPrice; // by Item ordinal
+    private final float[] values;
+    private final float[] arrival; // [treasures][kit][gold]: the value of walking into a brand new town
+    private final byte[] moves;
+    private int sweeps;
+
+    /**
+     * Sets up the tables for one mode; nothing is solved until solve() is called.
+     *
+     * @param mode The mode answer: "e", "n", "h" or "s".
+     * @param goldCap The most gold to tell apart.
+     */
+    public PolicySolver(String mode, int goldCap) {
+        this.mode = mode;
+        this.goldCap = goldCap;
+        golds = goldCap + 1;
+        // let a real session and shop decide the mode's numbers, so the solver can't drift from the game
+        GameSession session = new GameSession(null, new NullOutput(), 0);
+        session.setEasyMode(mode.equals("e"));
+        session.setHardMode(mode.equals("h"));
+        session.setSamuraiMode(mode.equals("s"));
+        samurai = session.isSamuraiMode();
+        toughness = session.getToughness();
+        rules = session.getRules();
+        breakChance = rules.getItemBreakChance();
+        startingGold = rules.getStartingGold();
+        // outside samurai mode the sword can never be in the kit, so leave its bit out of the tables
+        kitItems = samurai ? Item.VALUES.length : Item.SWORD.ordinal();
+        Shop shop = new Shop(session.getMarkdown(), session);
+        buyCost = new int[Item.VALUES.length];
+        sellPrice = new int[Item.VALUES.length];
+        for (Item item : Item.VALUES) {
+            buyCost[item.ordinal()] = shop.getCostOfItem(item);
+            sellPrice[item.ordinal()] = shop.getBuyBackCost(item);
+        }
+        int states = PolicyTable.TOWN_STATES * PolicyTable.TREASURE_STATES * (1 << kitItems) * golds;
+        values = new float[states];
+        arrival = new float[PolicyTable.TREASURE_STATES * (1 << kitItems) * golds];
+        moves = new byte[states];
+    }
+
+    public static void main(String[] args) throws IOException {
+        int goldCap = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GOLD_CAP;
+        String modes = args.length > 1 ? args[1] : "enhs";
+        Path directory = args.length > 2 ? Path.of(args[2]) : null;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        System.out.println("Solving with gold capped at " + goldCap + " on " + ForkJoinPool.commonPool().getParallelism() + " threads");
+        for (char letter : modes.toCharArray()) {
+            String mode = String.valueOf(letter);
+            long start = System.nanoTime();
+            PolicySolver solver = new PolicySolver(mode, goldCap);
+            PolicyTable table = solver.solve();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Mode %s: %d states, %d sweeps in %.1f s, best possible win chance %.2f%%%n",
+                    mode, solver.getStateCount(), solver.getSweeps(), seconds, 100.0 * table.getWinChance());
+            if (directory != null) {
+                Path file = directory.resolve("policy-" + mode + ".tbl");
+                table.save(file);
+                System.out.println("  saved to " + file);
+            }
+            if (games > 0) {
+                // play the table for real as a check; a generous turn limit so that quitting doesn't count against it
+                Simulation simulation = new Simulation(() -> new OptimalStrategy(table), 10_000);
+                SimulationStats stats = simulation.run(mode, games, new SplittableRandom(goldCap));
+                System.out.printf("  %d games played with the table: %.2f%% won%n", stats.getGames(), 100.0 * stats.getWinRate());
+            }
+        }
+    }
+
+    /**
+     * Runs value iteration to the end and builds the table of best moves.
+     *
+     * @return The finished table.
+     */
+    public PolicyTable solve() {
+        sweepUntilSettled(SOLVE, DISCOUNT);
+        sweep(CHOOSE, DISCOUNT);
+        // now find out how often the chosen moves really win, with no discount
+        Arrays.fill(values, 0);
+        sweepUntilSettled(EVALUATE, 1);
+        updateArrival();
+        float winChance = arrival[arrivalIndex(0, 0, Math.min(startingGold, goldCap))];
+        return new PolicyTable(mode, goldCap, kitItems, winChance, moves);
+    }
+
+    /**
+     * @return How many sweeps over every state solving took.
+     */
+    public int getSweeps() {
+        return sweeps;
+    }
+
+    public int getStateCount() {
+        return values.length;
+    }
+
+    private void sweepUntilSettled(int phase, float discount) {
+        float change = Float.MAX_VALUE;
+        for (int i = 0; i < MAX_SWEEPS && change > TOLERANCE; i++) {
+            change = sweep(phase, discount);
+            sweeps++;
+        }
+    }
+
+    /**
+     * Updates every state once.
+     *
+     * @return The biggest change to any state's value.
+     */
+    private float sweep(int phase, float discount) {
+        updateArrival();
+        int blocks = PolicyTable.TOWN_STATES * PolicyTable.TREASURE_STATES;
+        return ForkJoinPool.commonPool().invoke(new Sweep(phase, discount, 0, blocks));
+    }
+
+    /**
+     * Works out what arriving in a new town is worth: the terrain, toughness and treasure are all rolled
+     * the way Town's constructor rolls them, and nothing has been dug yet.
+     */
+    private void updateArrival() {
+        int treasureKinds = Treasure.VALUES.length;
+        double weight = 1.0 / (TerrainType.VALUES.length * treasureKinds);
+        for (int treasures = 0; treasures < PolicyTable.TREASURE_STATES; treasures++) {
+            for (int kit = 0; kit < 1 << kitItems; kit++) {
+                for (int gold = 0; gold < golds; gold++) {
+                    double value = 0;
+                    for (int terrain = 0; terrain < TerrainType.VALUES.length; terrain++) {
+                        for (Treasure treasure : Treasure.VALUES) {
+                            int left = PolicyTable.NO_TREASURE_LEFT;
+                            if (treasure != Treasure.DUST && (treasures & treasure.getBit()) == 0) {
+                                left = treasure.ordinal();
+                            }
+                            value += weight * toughness * values[index(PolicyTable.townStateOf(terrain, true, left, false), treasures, kit, gold)];
+                            value += weight * (1 - toughness) * values[index(PolicyTable.townStateOf(terrain, false, left, false), treasures, kit, gold)];
+                        }
+                    }
+                    arrival[arrivalIndex(treasures, kit, gold)] = (float) value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates one block of states: everything with one town state and one set of treasures.<p>
+     * Each row of states that differ only in gold is settled on its own before moving on. Looking for trouble
+     * is the only move that stays in the same row, so the other moves are valued once and then the brawling
+     * is iterated until the row stops changing. Without that, gold only creeps a few steps up or down each sweep.
+     *
+     * @return The biggest change to any value in the block.
+     */
+    private float updateBlock(int block, int phase, float discount) {
+        int town = block / PolicyTable.TREASURE_STATES;
+        // blocks with more treasures come last in the numbering, so do those first; hunting leads into them
+        int treasures = PolicyTable.TREASURE_STATES - 1 - block % PolicyTable.TREASURE_STATES;
+        Row row = new Row(golds);
+        float change = 0;
+        // buying leads to a bigger kit, so do the bigger kits first too
+        for (int kit = (1 << kitItems) - 1; kit >= 0; kit--) {
+            int base = index(town, treasures, kit, 0);
+            row.load(values, base, golds);
+            if ((town & 1) == 0 && (kit & Item.SHOVEL.getBit()) != 0) {
+                row.loadDug(values, index(town | 1, treasures, kit, 0), golds);
+            }
+            if (phase == CHOOSE) {
+                for (int gold = 0; gold < golds; gold++) {
+                    int best = PolicyTable.LOOK;
+                    float value = 0;
+                    // the first move to get the best value wins ties, so cheaper, forward moves come first
+                    for (int move = 0; move < PolicyTable.SELL + Item.VALUES.length; move++) {
+                        float moveValue = valueOf(move, town, treasures, kit, gold, discount, row);
+                        if (moveValue > value) {
+                            value = moveValue;
+                            best = move;
+                        }
+                    }
+                    moves[base + gold] = (byte) best;
+                }
+                continue;
+            }
+
+            // everything but looking for trouble leads out of this row, so it only needs working out once
+            for (int gold = 0; gold < golds; gold++) {
+                float other = 0;
+                boolean look = true;
+                if (phase == EVALUATE) {
+                    int move = moves[base + gold];
+                    look = move == PolicyTable.LOOK;
+                    if (!look) {
+                        other = valueOf(move, town, treasures, kit, gold, discount, row);
+                    }
+                } else {
+                    for (int move = 0; move < PolicyTable.SELL + Item.VALUES.length; move++) {
+                        if (move != PolicyTable.LOOK) {
+                            other = Math.max(other, valueOf(move, town, treasures, kit, gold, discount, row));
+                        }
+                    }
+                }
+                row.other[gold] = other;
+                row.look[gold] = look;
+            }
+            float rowChange = Float.MAX_VALUE;
+            for (int i = 0; i < MAX_ROW_PASSES && rowChange > TOLERANCE; i++) {
+                rowChange = 0;
+                for (int gold = 0; gold < golds; gold++) {
+                    float value = row.other[gold];
+                    if (row.look[gold]) {
+                        value = Math.max(value, valueOf(PolicyTable.LOOK, town, treasures, kit, gold, discount, row));
+                    }
+                    rowChange = Math.max(rowChange, Math.abs(value - values[base + gold]));
+                    change = Math.max(change, Math.abs(value - values[base + gold]));
+                    values[base + gold] = value;
+                }
+                row.load(values, base, golds);
+            }
+        }
+        return change;
+    }
+
+    /**
+     * The expected value of making a move in a state, following the game's rules exactly.
+     *
+     * @param row Running totals of the state's row, and of the same row in the dug-up town, as they were last loaded.
+     * @return The value, or UNAVAILABLE if the move can't be made or wouldn't do anything.
+     */
+    private float valueOf(int move, int town, int treasures, int kit, int gold, float discount, Row row) {
+        boolean dug = (town & 1) != 0;
+        int left = (town >> 1) & 3;
+        boolean tough = ((town >> 3) & 1) != 0;
+        int terrain = town >> 4;
+        if (move == PolicyTable.HUNT) {
+            if (left == PolicyTable.NO_TREASURE_LEFT) {
+                return UNAVAILABLE;
+            }
+            int found = treasures | Treasure.VALUES[left].getBit();
+            if (found == Treasure.ALL_TREASURES) {
+                return discount;
+            }
+            int hunted = PolicyTable.townStateOf(terrain, tough, PolicyTable.NO_TREASURE_LEFT, dug);
+            return discount * values[index(hunted, found, kit, gold)];
+        }
+        if (move == PolicyTable.DIG) {
+            if (dug || (kit & Item.SHOVEL.getBit()) == 0) {
+                return UNAVAILABLE;
+            }
+            double strike = row.sumAbove(row.dug, gold, rules.getMaxDigGold()) / rules.getMaxDigGold();
+            double dirt = row.dug[gold + 1] - row.dug[gold];
+            double strikeChance = rules.getStrikeGoldChance();
+            return (float) (discount * ((1 - strikeChance) * dirt + strikeChance * strike));
+        }
+        if (move == PolicyTable.MOVE) {
+            int needed = TerrainType.VALUES[terrain].getNeededItem().getBit();
+            if ((kit & needed) == 0) {
+                return UNAVAILABLE;
+            }
+            return (float) (discount * ((1 - breakChance) * arrival[arrivalIndex(treasures, kit, gold)]
+                    + breakChance * arrival[arrivalIndex(treasures, kit & ~needed, gold)]));
+        }
+        if (move == PolicyTable.LOOK) {
+            double trouble = tough ? rules.getToughTownTrouble() : rules.getMildTownTrouble();
+            double win = Math.min(1, 1 - trouble + rules.getBrawlBonus());
+            if ((kit & Item.SWORD.getBit()) != 0 && samurai) {
+                win = 1;
+            }
+            // losing more gold than the hunter has is game over, which is worth nothing
+            int maxBrawlGold = rules.getMaxBrawlGold();
+            double brawl = win * row.sumAbove(row.sums, gold, maxBrawlGold)
+                    + (1 - win) * (row.sums[gold] - row.sums[Math.max(gold - maxBrawlGold, 0)]);
+            brawl /= maxBrawlGold;
+            // finding no trouble leaves everything as it was, so keep looking until there is some
+            return (float) (discount * trouble * brawl / (1 - discount * (1 - trouble)));
+        }
+        Item item = Item.VALUES[(move - PolicyTable.BUY) % Item.VALUES.length];
+        if (item.ordinal() >= kitItems) {
+            return UNAVAILABLE;
+        }
+        int bit = item.getBit();
+        if (move < PolicyTable.SELL) {
+            if ((kit & bit) != 0) {
+                return UNAVAILABLE;
+            }
+            int cost = buyCost[item.ordinal()];
+            if (samurai) {
+                // a samurai always gets the item, and pays nothing once they have the sword
+                if ((kit & Item.SWORD.getBit()) != 0) {
+                    cost = 0;
+                }
+            } else if (cost == 0) {
+                return UNAVAILABLE;
+            }
+            if (gold < cost) {
+                return UNAVAILABLE;
+            }
+            return discount * values[index(town, treasures, kit | bit, gold - cost)];
+        }
+        int price = sellPrice[item.ordinal()];
+        if ((kit & bit) == 0 || price <= 0) {
+            return UNAVAILABLE;
+        }
+        return discount * values[index(town, treasures, kit & ~bit, Math.min(gold + price, goldCap))];
+    }
+
+    /**
+     * The same layout as PolicyTable.stateOf().
+     */
+    private int index(int town, int treasures, int kit, int gold) {
+        return (((town * PolicyTable.TREASURE_STATES + treasures) << kitItems) + kit) * golds + gold;
+    }
+
+    private int arrivalIndex(int treasures, int kit, int gold) {
+        return ((treasures << kitItems) + kit) * golds + gold;
+    }
+
+    /**
+     * Scratch space for settling one row of states that differ only in gold. The values are kept as
+     * running totals (sums[g] is the total of every value below g), so a brawl or a dig, which can move
+     * the gold up or down by up to 20, is priced with a couple of subtractions instead of a loop.
+     */
+    private static class Row {
+        private final double[] sums;
+        private final double[] dug;
+        private final float[] other;
+        private final boolean[] look;
+
+        Row(int golds) {
+            sums = new double[golds + 1];
+            dug = new double[golds + 1];
+            other = new float[golds];
+            look = new boolean[golds];
+        }
+
+        void load(float[] values, int base, int golds) {
+            total(values, base, golds, sums);
+        }
+
+        void loadDug(float[] values, int base, int golds) {
+            total(values, base, golds, dug);
+        }
+
+        /**
+         * @return The total of the values from gold + 1 up to gold + amount, where gold past the cap counts as the cap.
+         */
+        double sumAbove(double[] totals, int gold, int amount) {
+            int cap = totals.length - 2;
+            int top = gold + amount;
+            if (top <= cap) {
+                return totals[top + 1] - totals[gold + 1];
+            }
+            double capValue = totals[cap + 1] - totals[cap];
+            return totals[cap + 1] - totals[Math.min(gold + 1, cap + 1)] + (top - Math.max(gold, cap)) * capValue;
+        }
+
+        private static void total(float[] values, int base, int golds, double[] totals) {
+            for (int gold = 0; gold < golds; gold++) {
+                totals[gold + 1] = totals[gold] + values[base + gold];
+            }
+        }
+    }
+
+    /**
+     * Splits a range of blocks in half until it is small enough to update straight through.
+     */
+    private class Sweep extends RecursiveTask<Float> {
+        private final int phase;
+        private final float discount;
+        private final int from;
+        private final int to;
+
+        Sweep(int phase, float discount, int from, int to) {
+            this.phase = phase;
+            this.discount = discount;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Float compute() {
+            if (to - from <= BLOCKS_PER_TASK) {
+                float change = 0;
+                for (int block = from; block < to; block++) {
+                    change = Math.max(change, updateBlock(block, phase, discount));
+                }
+                return change;
+            }
+            int middle = (from + to) >>> 1;
+            Sweep left = new Sweep(phase, discount, from, middle);
+            left.fork();
+            float right = new Sweep(phase, discount, middle, to).compute();
+            return Math.max(left.join(), right);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The best move for every state of a game in one mode, as worked out by PolicySolver.<p>
+ * A state is the hunter's gold (capped at getGoldCap()), kit and treasures, plus the town's terrain,
+ * whether it's tough, which treasure is still worth hunting there, and whether it has been dug.
+ * The moves are kept one byte per state in a flat array, so looking one up is a bit of arithmetic
+ * and a single array read.<p>
+ * Saved tables are a small big-endian header (magic "THPT", version, mode, gold cap, kit items,
+ * win chance) followed by the move bytes.
+ */
+public class PolicyTable {
+    // constants
+    static final int TOWN_STATES = TerrainType.VALUES.length * 2 * 4 * 2;
+    static final int TREASURE_STATES = Treasure.ALL_TREASURES; // every set of treasures short of all of them
+    static final int NO_TREASURE_LEFT = 3;
+    static final int HUNT = 0;
+    static final int DIG = 1;
+    static final int MOVE = 2;
+    static final int LOOK = 3;
+    static final int BUY = 4; // plus the Item ordinal
+    static final int SELL = BUY + Item.VALUES.length; // plus the Item ordinal
+    private static final int MAGIC = 0x54485054; // "THPT"
+    private static final short VERSION = 1;
+    private static final int HEADER = 20;
+    private static final String[] MOVES = new String[SELL + Item.VALUES.length];
+    static {
+        MOVES[HUNT] = "h";
+        MOVES[DIG] = "d";
+        MOVES[MOVE] = "m";
+        MOVES[LOOK] = "l";
+        for (Item item : Item.VALUES) {
+            MOVES[BUY + item.ordinal()] = "b " + item.getName();
+            MOVES[SELL + item.ordinal()] = "s " + item.getName();
+        }
+    }
+
+    // instance variables
+    private final String mode;
+    private final int goldCap;
+    private final int kitItems;
+    private final float winChance;
+    private final byte[] moves;
+
+    /**
+     * @param mode The mode answer the table is for: "e", "n", "h" or "s".
+     * @param goldCap The most gold the table tells apart; anything above counts as this much.
+     * @param kitItems How many items the kit bits cover (the sword only matters in samurai mode).
+     * @param winChance The chance of winning from the start of a game when following the table.
+     * @param moves One move code per state, laid out as described by stateOf().
+     */
+    public PolicyTable(String mode, int goldCap, int kitItems, float winChance, byte[] moves) {
+        this.mode = mode;
+        this.goldCap = goldCap;
+        this.kitItems = kitItems;
+        this.winChance = winChance;
+        this.moves = moves;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public int getGoldCap() {
+        return goldCap;
+    }
+
+    /**
+     * @return The chance of winning a new game by always making the table's move.
+     */
+    public float getWinChance() {
+        return winChance;
+    }
+
+    /**
+     * Looks up the best move for a game in progress.
+     *
+     * @param session A session whose hunter is standing in a town.
+     * @return The move, in the form a StrategyInput understands ("h", "m", "b rope" and so on).
+     */
+    public String getMove(GameSession session) {
+        Hunter hunter = session.getHunter();
+        Town town = session.getCurrentTown();
+        int treasures = hunter.getTreasureBits() & Treasure.ALL_TREASURES;
+        Treasure left = town.getTownTreasure();
+        int leftIndex = NO_TREASURE_LEFT;
+        if (left != null && left != Treasure.DUST && (treasures & left.getBit()) == 0) {
+            leftIndex = left.ordinal();
+        }
+        int townState = townStateOf(town.getTerrain().getType().ordinal(), town.isToughTown(), leftIndex, town.hasBeenDug());
+        int kit = hunter.getKitBits() & ((1 << kitItems) - 1);
+        int gold = Math.max(0, Math.min(hunter.getGold(), goldCap));
+        return MOVES[moves[stateOf(townState, treasures, kit, gold)]];
+    }
+
+    /**
+     * @return Which of the TOWN_STATES a town is in.
+     */
+    static int townStateOf(int terrain, boolean tough, int treasureLeft, boolean dug) {
+        return ((terrain * 2 + (tough ? 1 : 0)) * 4 + treasureLeft) * 2 + (dug ? 1 : 0);
+    }
+
+    /**
+     * Gold varies fastest, so the states a dig or a brawl can lead to sit next to each other in memory.
+     *
+     * @return The index of a state in the move array.
+     */
+    int stateOf(int townState, int treasures, int kit, int gold) {
+        return (((townState * TREASURE_STATES + treasures) << kitItems) + kit) * (goldCap + 1) + gold;
+    }
+
+    /**
+     * Writes the table to a file, through a temporary file so a half-written table is never left behind.
+     */
+    public void save(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.put((byte) mode.charAt(0));
+        header.put((byte) kitItems);
+        header.putInt(goldCap);
+        header.putFloat(winChance);
+        header.putInt(moves.length);
+        header.flip();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer body = ByteBuffer.wrap(moves);
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[] {header, body});
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a table written by save().
+     */
+    public static PolicyTable load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            readFully(channel, header, file);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a policy table");
+            }
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported policy table version " + version);
+            }
+            String mode = String.valueOf((char) header.get());
+            int kitItems = header.get();
+            int goldCap = header.getInt();
+            float winChance = header.getFloat();
+            int size = header.getInt();
+            if (kitItems < 0 || kitItems > Item.VALUES.length || goldCap < 0
+                    || size != (long) TOWN_STATES * TREASURE_STATES * (1 << kitItems) * (goldCap + 1)) {
+                throw new IOException("Corrupt policy table: bad size");
+            }
+            ByteBuffer body = ByteBuffer.allocate(size);
+            readFully(channel, body, file);
+            return new PolicyTable(mode, goldCap, kitItems, winChance, body.array());
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, Path file) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException(file + " is too short to be a policy table");
+            }
+        }
+        buffer.flip();
+    }
+}
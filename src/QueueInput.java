@@ -0,0 +1,79 @@
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A GameInput fed by other threads: whatever is put in comes out as the player's lines, in order.<p>
+ * Useful for driving a game from code, like a chat bot or a test harness, or from a thread that reads
+ * somewhere else (which is what ReadAheadInput does). The game waits when the queue is empty; once
+ * close() is called and the queue has drained, the game sees the end of input.
+ */
+public class QueueInput implements GameInput {
+    // constants
+    private static final String END = new String("end of input"); // compared by identity, so no line can match it
+
+    // instance variables
+    private final BlockingQueue<String> lines;
+    private volatile boolean ended; // only set by the game thread, once it has taken END
+
+    /**
+     * Makes a queue with no limit on how many lines can be waiting.
+     */
+    public QueueInput() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param capacity The most lines that can be waiting; put() waits for room beyond that.
+     */
+    public QueueInput(int capacity) {
+        lines = new LinkedBlockingQueue<>(capacity);
+        ended = false;
+    }
+
+    /**
+     * Adds a line, waiting for room if the queue is full.
+     */
+    public void put(String line) throws InterruptedException {
+        lines.put(line);
+    }
+
+    /**
+     * Adds a line if there's room.
+     *
+     * @return false if the queue was full and the line wasn't added.
+     */
+    public boolean offer(String line) {
+        return lines.offer(line);
+    }
+
+    /**
+     * Ends the input once the lines already put in have been read.
+     */
+    public void close() throws InterruptedException {
+        lines.put(END);
+    }
+
+    @Override
+    public String nextLine() {
+        if (ended) {
+            return null;
+        }
+        try {
+            String line = lines.take();
+            if (line == END) {
+                ended = true;
+                return null;
+            }
+            return line;
+        } catch (InterruptedException e) {
+            // treat being stopped like the end of input, but let the caller know
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    public boolean ready() {
+        return ended || !lines.isEmpty();
+    }
+}
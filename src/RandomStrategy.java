@@ -0,0 +1,31 @@
+import java.util.SplittableRandom;
+
+/**
+ * A baseline bot that picks any sensible-looking move at random: hunt, dig, look for trouble, move on,
+ * or buy the item the road out of town needs or a shovel.<p>
+ * It rolls its own dice, seeded from the game's seed, so it never uses up the game's random rolls and
+ * the same seed always gives the same game.
+ */
+public class RandomStrategy implements Strategy {
+    // constants
+    private static final String[] MOVES = {"h", "d", "l", "m", "b ", "b shovel"};
+    private static final long SALT = 0x9E3779B97F4A7C15L;
+
+    // instance variables
+    private SplittableRandom random;
+
+    @Override
+    public String nextMove(GameSession session) {
+        if (random == null) {
+            random = new SplittableRandom(session.getSeed() ^ SALT);
+        }
+        if (session.isSamuraiMode() && !session.getHunter().hasItemInKit("sword")) {
+            return "b sword";
+        }
+        String move = MOVES[random.nextInt(MOVES.length)];
+        if (move.equals("b ")) {
+            return move + session.getCurrentTown().getTerrain().getNeededItem();
+        }
+        return move;
+    }
+}
@@ -0,0 +1,70 @@
+import java.io.InputStreamReader;
+
+/**
+ * Reads another input's lines on a background thread, up to a set number ahead of the game.<p>
+ * The game then never sits in a read while lines are already on their way: a script piped into System.in,
+ * or a client that sends several answers at once, is read while the game is busy with the previous line,
+ * and since ready() can tell a whole line is waiting, the session skips flushing output in between.
+ * Once the wrapped input runs out, so does this one. Close it when the game is over, so a reader that
+ * is still waiting for room (because lines were sent that the game never got to) is let go.
+ */
+public class ReadAheadInput implements GameInput, AutoCloseable {
+    // constants
+    public static final int DEFAULT_LINES = 1024;
+
+    // instance variables
+    private final QueueInput queue;
+    private final Thread reader;
+
+    /**
+     * Starts reading straight away.
+     *
+     * @param source The input to read from. Only the reading thread touches it from now on.
+     * @param lines The most lines to read ahead.
+     */
+    public ReadAheadInput(GameInput source, int lines) {
+        queue = new QueueInput(lines);
+        reader = Thread.ofVirtual().name("read-ahead").start(() -> readAll(source));
+    }
+
+    public ReadAheadInput(GameInput source) {
+        this(source, DEFAULT_LINES);
+    }
+
+    /**
+     * @return An input reading ahead from System.in.
+     */
+    public static ReadAheadInput fromStdin() {
+        return new ReadAheadInput(new ReaderInput(new InputStreamReader(System.in)));
+    }
+
+    @Override
+    public String nextLine() {
+        return queue.nextLine();
+    }
+
+    @Override
+    public boolean ready() {
+        return queue.ready();
+    }
+
+    /**
+     * Stops reading ahead. Lines already read can still be taken.
+     */
+    @Override
+    public void close() {
+        reader.interrupt();
+    }
+
+    private void readAll(GameInput source) {
+        try {
+            String line;
+            while ((line = source.nextLine()) != null) {
+                queue.put(line);
+            }
+            queue.close();
+        } catch (InterruptedException e) {
+            // nobody is reading any more
+        }
+    }
+}
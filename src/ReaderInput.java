@@ -0,0 +1,25 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the player's lines from any Reader, such as a socket's input stream.<p>
+ * A read error is treated the same as running out of input.
+ */
+public class ReaderInput implements GameInput {
+    // instance variables
+    private final BufferedReader reader;
+
+    public ReaderInput(Reader reader) {
+        this.reader = new BufferedReader(reader);
+    }
+
+    @Override
+    public String nextLine() {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
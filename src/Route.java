@@ -0,0 +1,62 @@
+/**
+ * A planned trip through a World: the towns to walk through in order, what has to be bought
+ * before setting out, and how much gold the whole trip is expected to cost.
+ */
+public class Route {
+    // instance variables
+    private final int[] towns;
+    private final TerrainType[] crossings;
+    private final int itemsToBuy;
+    private final double expectedCost;
+
+    /**
+     * @param towns Every town visited, starting with the one the hunter is in.
+     * @param crossings The terrain crossed between each town and the next, so one shorter than towns.
+     * @param itemsToBuy The items the hunter doesn't have yet but will need, one bit per Item.
+     * @param expectedCost Gold for those items plus the expected gold to replace items that break on the way.
+     */
+    public Route(int[] towns, TerrainType[] crossings, int itemsToBuy, double expectedCost) {
+        this.towns = towns;
+        this.crossings = crossings;
+        this.itemsToBuy = itemsToBuy;
+        this.expectedCost = expectedCost;
+    }
+
+    public int[] getTowns() {
+        return towns;
+    }
+
+    public TerrainType[] getCrossings() {
+        return crossings;
+    }
+
+    /**
+     * @return The items to buy before setting out, one bit per Item.
+     */
+    public int getItemsToBuy() {
+        return itemsToBuy;
+    }
+
+    public double getExpectedCost() {
+        return expectedCost;
+    }
+
+    /**
+     * @return The route as text, for example "4 -(ocean)-> 9 -(plains)-> 2, buy boat horse, about 23.0 gold".
+     */
+    public String infoString() {
+        StringBuilder str = new StringBuilder().append(towns[0]);
+        for (int i = 0; i < crossings.length; i++) {
+            str.append(" -(").append(crossings[i].getTerrainName()).append(")-> ").append(towns[i + 1]);
+        }
+        if (itemsToBuy != 0) {
+            str.append(", buy");
+            for (Item item : Item.VALUES) {
+                if ((itemsToBuy & item.getBit()) != 0) {
+                    str.append(' ').append(item.getName());
+                }
+            }
+        }
+        return str.append(String.format(", about %.1f gold", expectedCost)).toString();
+    }
+}
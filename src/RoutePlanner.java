@@ -0,0 +1,389 @@
+import java.util.Arrays;
+
+/**
+ * Finds the cheapest way through a World to collect the crown, the trophy and the gem.<p>
+ * Crossing a road costs nothing if the hunter already has the right item, except that the item might
+ * break on the way and need buying again, so each road is priced at its item's cost times the chance
+ * of it breaking. The first road that needs an item the hunter doesn't have also costs the item itself,
+ * so which roads are cheap depends on what the hunter is carrying.<p>
+ * Part of the searching happens once, when the planner is made: one Dijkstra run per treasure, started from
+ * every town that holds it at once, leaves each town knowing what reaching the nearest town with that
+ * treasure costs at the least, if every item needed on the way were already owned. A query is then an A*
+ * search over (town, items owned, treasures found) states, with the dearest of those costs for the treasures
+ * still missing as its estimate of what's left. The estimate never overshoots, so the route found is the
+ * cheapest there is, and it steers the search straight at the treasures, so a query only looks at the towns
+ * near the route however big the world is.
+ * Run it with: java RoutePlanner [towns] [seed] [queries]
+ */
+public class RoutePlanner {
+    // constants
+    private static final Treasure[] GOALS = {Treasure.CROWN, Treasure.TROPHY, Treasure.GEM};
+    private static final int CROSSING_ITEMS = crossingItems(); // only these make any difference to a route
+    // a little extra on every road, so that when items never break the shorter of two free routes still wins
+    private static final double STEP_COST = 0.01;
+
+    // instance variables
+    private final World world;
+    private final double[] crossingCost; // by TerrainType ordinal
+    private final double[][] cost; // [goal][town]: least expected gold to reach the nearest town with that treasure
+
+    /**
+     * Plans for normal mode, with items breaking as often as the current rules say.
+     *
+     * @param world The world to plan routes through.
+     */
+    public RoutePlanner(World world) {
+        this(world, RuleBook.current().forMode("n").getItemBreakChance());
+    }
+
+    /**
+     * @param world The world to plan routes through.
+     * @param breakChance The chance that an item breaks each time it's used (0 in easy mode).
+     */
+    public RoutePlanner(World world, double breakChance) {
+        this.world = world;
+        crossingCost = new double[TerrainType.VALUES.length];
+        for (TerrainType type : TerrainType.VALUES) {
+            crossingCost[type.ordinal()] = type.getNeededItem().getCost() * breakChance + STEP_COST;
+        }
+        cost = new double[GOALS.length][];
+        for (int goal = 0; goal < GOALS.length; goal++) {
+            cost[goal] = new double[world.getTownCount()];
+            search(GOALS[goal], cost[goal]);
+        }
+    }
+
+    public static void main(String[] args) {
+        int towns = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+
+        long start = System.nanoTime();
+        World world = new World(towns, seed);
+        long built = System.nanoTime();
+        RoutePlanner planner = new RoutePlanner(world);
+        long planned = System.nanoTime();
+        System.out.printf("Built %d towns and %d roads in %.0f ms, planned in %.0f ms%n", world.getTownCount(),
+                world.getRoadCount() / 2, (built - start) / 1e6, (planned - built) / 1e6);
+
+        // query from towns spread over the whole world, with no kit, and keep a total so nothing gets optimized away
+        double total = 0;
+        long routes = 0;
+        long step = Math.max(1, towns / 7919);
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                // a small world might not have every treasure in it at all
+                Route route = planner.plan((int) (i * step % towns), 0);
+                if (route != null) {
+                    total += route.getExpectedCost();
+                    routes++;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s: %d queries, %.2f us each%n", round == 0 ? "Warm-up" : "Measured", queries, seconds * 1e6 / queries);
+        }
+        if (routes < 2L * queries) {
+            System.out.printf("%d queries found no way to every treasure%n", 2L * queries - routes);
+        }
+        if (routes > 0) {
+            System.out.printf("Average expected cost %.1f gold%n", total / routes);
+        }
+        Route fromStart = planner.plan(0, 0);
+        System.out.println("From town 0: " + (fromStart == null ? "no way to every treasure" : fromStart.infoString()));
+    }
+
+    /**
+     * Plans the cheapest trip from a town that collects every treasure needed to win.
+     *
+     * @param start The town the hunter is in.
+     * @param kit What the hunter already has, one bit per Item.
+     * @return The route, or null if some treasure can't be reached from there.
+     */
+    public Route plan(int start, int kit) {
+        return plan(start, kit, 0);
+    }
+
+    /**
+     * Plans the cheapest trip from a town that collects the treasures the hunter is still missing.
+     *
+     * @param start The town the hunter is in.
+     * @param kit What the hunter already has, one bit per Item.
+     * @param found The treasures already found, one bit per Treasure.
+     * @return The route, or null if some treasure can't be reached from there.
+     */
+    public Route plan(int start, int kit, int found) {
+        kit &= CROSSING_ITEMS;
+        found = collect(found & Treasure.ALL_TREASURES, start);
+        if (estimate(start, found) == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        States states = new States();
+        Heap open = new Heap(64);
+        int first = states.find(start, kit, found);
+        states.cost[first] = 0;
+        states.road[first] = -1;
+        open.push(first, estimate(start, found));
+        while (!open.isEmpty()) {
+            double f = open.peekCost();
+            int state = open.pop();
+            int town = states.townOf(state);
+            int owned = states.kitOf(state);
+            int got = states.foundOf(state);
+            double g = states.cost[state];
+            if (f > g + estimate(town, got)) {
+                continue; // already reached more cheaply
+            }
+            if (got == Treasure.ALL_TREASURES) {
+                return routeTo(states, state, kit);
+            }
+            for (int r = world.getFirstRoad(town); r < world.getLastRoad(town); r++) {
+                TerrainType terrain = world.getRoadTerrain(r);
+                int bit = terrain.getNeededItem().getBit();
+                double through = g + crossingCost[terrain.ordinal()];
+                if ((owned & bit) == 0) {
+                    through += terrain.getNeededItem().getCost();
+                }
+                int neighbor = world.getRoadTo(r);
+                int next = states.find(neighbor, owned | bit, collect(got, neighbor));
+                if (through < states.cost[next]) {
+                    states.cost[next] = through;
+                    states.parent[next] = state;
+                    states.road[next] = r;
+                    open.push(next, through + estimate(neighbor, states.foundOf(next)));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param goal The treasure to head for.
+     * @param town Where the hunter is.
+     * @return The least expected gold to reach the nearest town holding that treasure, not counting buying
+     *         items the first time, or infinity if there isn't one.
+     */
+    public double getCostToNearest(Treasure goal, int town) {
+        for (int i = 0; i < GOALS.length; i++) {
+            if (GOALS[i] == goal) {
+                return cost[i][town];
+            }
+        }
+        throw new IllegalArgumentException(goal + " is not needed to win");
+    }
+
+    /**
+     * The A* estimate: every treasure still missing has to be reached, so the dearest of them is a floor.
+     */
+    private double estimate(int town, int found) {
+        double most = 0;
+        for (int goal = 0; goal < GOALS.length; goal++) {
+            if ((found & GOALS[goal].getBit()) == 0) {
+                most = Math.max(most, cost[goal][town]);
+            }
+        }
+        return most;
+    }
+
+    /**
+     * @return The treasures found once the hunter has hunted in a town as well.
+     */
+    private int collect(int found, int town) {
+        return found | (world.getTreasure(town).getBit() & Treasure.ALL_TREASURES);
+    }
+
+    /**
+     * Walks back from the state that found the last treasure to the start.
+     */
+    private Route routeTo(States states, int end, int kit) {
+        int steps = 0;
+        for (int state = end; states.road[state] >= 0; state = states.parent[state]) {
+            steps++;
+        }
+        int[] towns = new int[steps + 1];
+        TerrainType[] crossings = new TerrainType[steps];
+        int state = end;
+        for (int step = steps; step > 0; step--) {
+            towns[step] = states.townOf(state);
+            crossings[step - 1] = world.getRoadTerrain(states.road[state]);
+            state = states.parent[state];
+        }
+        towns[0] = states.townOf(state);
+        return new Route(towns, crossings, states.kitOf(end) & ~kit, states.cost[end]);
+    }
+
+    private static int crossingItems() {
+        int items = 0;
+        for (TerrainType type : TerrainType.VALUES) {
+            items |= type.getNeededItem().getBit();
+        }
+        return items;
+    }
+
+    /**
+     * Dijkstra from every town holding the goal at once. Roads go both ways and cost the same each way,
+     * so the cost of reaching a town from the goals is the cost of reaching the goals from that town.
+     */
+    private void search(Treasure goal, double[] dist) {
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Heap heap = new Heap(world.getTownCount());
+        for (int town = 0; town < world.getTownCount(); town++) {
+            if (world.getTreasure(town) == goal) {
+                dist[town] = 0;
+                heap.push(town, 0);
+            }
+        }
+        while (!heap.isEmpty()) {
+            double d = heap.peekCost();
+            int town = heap.pop();
+            if (d > dist[town]) {
+                continue; // already reached more cheaply
+            }
+            for (int r = world.getFirstRoad(town); r < world.getLastRoad(town); r++) {
+                int neighbor = world.getRoadTo(r);
+                double through = d + crossingCost[world.getRoadTerrain(r).ordinal()];
+                if (through < dist[neighbor]) {
+                    dist[neighbor] = through;
+                    heap.push(neighbor, through);
+                }
+            }
+        }
+    }
+
+    /**
+     * Every (town, items owned, treasures found) state one query has reached, in an open-addressing hash
+     * table of plain arrays, numbered in the order they were first reached.
+     */
+    private static class States {
+        private long[] keys = new long[64];
+        private int[] slots = new int[128]; // hash table of state numbers + 1, 0 for empty
+        private double[] cost = new double[64];
+        private int[] parent = new int[64];
+        private int[] road = new int[64]; // the road taken into the state, or -1 for the start
+        private int size;
+
+        /**
+         * @return The state's number, adding it (unreached, at infinite cost) if it's new.
+         */
+        int find(int town, int kit, int found) {
+            long key = ((long) town << 11) | ((long) kit << 3) | found;
+            int mask = slots.length - 1;
+            int i = hash(key) & mask;
+            while (slots[i] != 0) {
+                if (keys[slots[i] - 1] == key) {
+                    return slots[i] - 1;
+                }
+                i = (i + 1) & mask;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                cost = Arrays.copyOf(cost, size * 2);
+                parent = Arrays.copyOf(parent, size * 2);
+                road = Arrays.copyOf(road, size * 2);
+            }
+            keys[size] = key;
+            cost[size] = Double.POSITIVE_INFINITY;
+            slots[i] = ++size;
+            if (2 * size > slots.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        int townOf(int state) {
+            return (int) (keys[state] >>> 11);
+        }
+
+        int kitOf(int state) {
+            return (int) (keys[state] >>> 3) & 0xFF;
+        }
+
+        int foundOf(int state) {
+            return (int) keys[state] & 7;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int state = 0; state < size; state++) {
+                int i = hash(keys[state]) & mask;
+                while (slots[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = state + 1;
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /**
+     * A binary min-heap of towns by cost, kept in plain arrays. Towns can be pushed more than once;
+     * the search skips the stale copies when they come out.
+     */
+    private static class Heap {
+        private int[] towns;
+        private double[] costs;
+        private int size;
+
+        Heap(int capacity) {
+            towns = new int[Math.max(capacity, 16)];
+            costs = new double[towns.length];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double peekCost() {
+            return costs[0];
+        }
+
+        void push(int town, double cost) {
+            if (size == towns.length) {
+                towns = Arrays.copyOf(towns, size * 2);
+                costs = Arrays.copyOf(costs, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (costs[parent] <= cost) {
+                    break;
+                }
+                towns[i] = towns[parent];
+                costs[i] = costs[parent];
+                i = parent;
+            }
+            towns[i] = town;
+            costs[i] = cost;
+        }
+
+        int pop() {
+            int top = towns[0];
+            int town = towns[--size];
+            double cost = costs[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && costs[child + 1] < costs[child]) {
+                    child++;
+                }
+                if (costs[child] >= cost) {
+                    break;
+                }
+                towns[i] = towns[child];
+                costs[i] = costs[child];
+                i = child;
+            }
+            towns[i] = town;
+            costs[i] = cost;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The GameRules for every mode, as one unit that is swapped in whole.<p>
+ * The rules in play are kept in an AtomicReference: a new session takes whatever book is current when it starts,
+ * and a reload swaps in a new book without touching any game already running. A rules file is a properties file;
+ * anything it leaves out keeps the game's usual value, and a rule can be given for every mode ("markdown=0.5")
+ * or just one ("h.markdown=0.25"). A file that doesn't load leaves the current rules in place.
+ */
+public final class RuleBook {
+    // constants
+    public static final String MODES = "enhs";
+    private static final Properties DEFAULTS = new Properties();
+    static {
+        try (Reader reader = new StringReader(String.join("\n",
+                "markdown=0.5", "e.markdown=1", "h.markdown=0.25",
+                "toughness=0.4", "h.toughness=0.75",
+                "toughTownTrouble=0.66", "mildTownTrouble=0.33",
+                "brawlBonus=0", "e.brawlBonus=0.1",
+                "itemBreakChance=0.5", "e.itemBreakChance=0",
+                "strikeGoldChance=0.5", "maxDigGold=20", "maxBrawlGold=10",
+                "startingGold=20", "e.startingGold=40"))) {
+            DEFAULTS.load(reader);
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    private static final RuleBook STANDARD = new RuleBook(new Properties(), "the standard rules");
+    private static final AtomicReference<RuleBook> CURRENT = new AtomicReference<>(STANDARD);
+
+    // instance variables
+    private final GameRules[] modes; // by position in MODES
+    private final String source;
+
+    /**
+     * @throws IllegalArgumentException If a rule isn't a number or is out of range.
+     */
+    private RuleBook(Properties rules, String source) {
+        modes = new GameRules[MODES.length()];
+        for (int i = 0; i < MODES.length(); i++) {
+            modes[i] = new GameRules(MODES.substring(i, i + 1), rules, DEFAULTS);
+        }
+        this.source = source;
+    }
+
+    /**
+     * @return The rules the game has always been played by.
+     */
+    public static RuleBook standard() {
+        return STANDARD;
+    }
+
+    /**
+     * @return The rules new sessions start with.
+     */
+    public static RuleBook current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes a book the one new sessions start with. Sessions already running keep the book they started with.
+     */
+    public static void install(RuleBook book) {
+        CURRENT.set(book);
+    }
+
+    /**
+     * Reads a rules file.
+     *
+     * @throws IOException If the file can't be read or a rule in it is bad.
+     */
+    public static RuleBook load(Path file) throws IOException {
+        Properties rules = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            rules.load(reader);
+        }
+        try {
+            return new RuleBook(rules, file.toString());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Bad rules in " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads rules written by toLines(), such as the ones kept in a Journal.
+     *
+     * @param lines "mode.rule=value" lines.
+     * @param source Where they came from, for showing in logs.
+     * @throws IOException If a rule in them is bad.
+     */
+    public static RuleBook fromLines(List<String> lines, String source) throws IOException {
+        Properties rules = new Properties();
+        try (Reader reader = new StringReader(String.join("\n", lines))) {
+            rules.load(reader);
+        }
+        try {
+            return new RuleBook(rules, source);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Bad rules in " + source + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads a rules file and installs it if it loaded.
+     *
+     * @return The new book.
+     */
+    public static RuleBook reload(Path file) throws IOException {
+        RuleBook book = load(file);
+        install(book);
+        return book;
+    }
+
+    /**
+     * Checks a rules file on a background thread every so often and reloads it whenever it changes, for as long
+     * as the process runs. Problems are reported on System.err and the rules already in place are kept.
+     *
+     * @param file The rules file.
+     * @param seconds How often to check.
+     * @return The scheduler doing the checking; shut it down to stop.
+     */
+    public static ScheduledExecutorService startWatching(Path file, long seconds) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rules-watch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        FileTime[] loaded = {null};
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                FileTime modified = Files.getLastModifiedTime(file);
+                if (!modified.equals(loaded[0])) {
+                    loaded[0] = modified;
+                    reload(file);
+                    System.out.println("Loaded game rules from " + file);
+                }
+            } catch (IOException e) {
+                System.err.println("Keeping the current game rules: " + e.getMessage());
+            }
+        }, 0, seconds, TimeUnit.SECONDS);
+        return scheduler;
+    }
+
+    /**
+     * @param mode The mode answer: "e", "n", "h" or "s". Anything else gets the normal rules.
+     * @return The rules for that mode.
+     */
+    public GameRules forMode(String mode) {
+        int index = mode.length() == 1 ? MODES.indexOf(mode.charAt(0)) : -1;
+        return modes[index < 0 ? MODES.indexOf('n') : index];
+    }
+
+    /**
+     * Writes out every rule for every mode, with nothing left to the defaults, so the same rules can be
+     * rebuilt with fromLines() even if the defaults change.
+     *
+     * @return One "mode.rule=value" line per rule.
+     */
+    public List<String> toLines() {
+        List<String> lines = new ArrayList<>();
+        for (GameRules rules : modes) {
+            rules.writeTo(lines);
+        }
+        return lines;
+    }
+
+    /**
+     * @return Where the rules came from, for showing in logs.
+     */
+    public String getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,231 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves a running game to a small fixed-size binary record and loads it back.<p>
+ * Every save is exactly SIZE bytes laid out like this (big-endian):
+ * <pre>
+ *  0  int    magic "THSV"
+ *  4  short  format version
+ *  6  byte   mode flags: 1 = hard, 2 = easy, 4 = samurai
+ *  7  byte   length of the hunter's name in bytes
+ *  8  byte[] hunter's name, UTF-8, padded with zeros to NAME_BYTES
+ * 40  int    gold
+ * 44  int    kit, one bit per Item
+ * 48  int    treasures found, one bit per Treasure
+ * 52  int    turns played
+ * 56  byte   terrain, by TerrainType ordinal
+ * 57  byte   town treasure, by Treasure ordinal, or -1 once it has been hunted
+ * 58  byte   town flags: 1 = tough town, 2 = already dug
+ * 59  byte   last brawl: 0 = none, 1 = won, 2 = lost
+ * 60         unused, up to SIZE
+ * </pre>
+ * Loading is a single read into a buffer followed by plain field reads, with no reflection,
+ * so a save can also be handed between servers as a ByteBuffer without touching the disk.
+ */
+public class SaveGame {
+    // constants
+    public static final int SIZE = 64;
+    public static final int NAME_BYTES = 32;
+    private static final int MAGIC = 0x54485356; // "THSV"
+    private static final short VERSION = 1;
+    private static final int HARD = 1;
+    private static final int EASY = 2;
+    private static final int SAMURAI = 4;
+    private static final int TOUGH_TOWN = 1;
+    private static final int DUG = 2;
+    private static final String SUFFIX = ".sav";
+    private static final int ALL_ITEMS = (1 << Item.VALUES.length) - 1;
+    private static final int ALL_TREASURE_BITS = (1 << Treasure.VALUES.length) - 1;
+
+    private SaveGame() {
+    }
+
+    /**
+     * @param directory The directory saves go in.
+     * @param hunter The hunter whose game is being saved.
+     * @return The file that hunter's game saves to.
+     */
+    public static Path fileFor(Path directory, Hunter hunter) {
+        // names come from players, so keep anything that could escape the directory out of the file name
+        String safeName = hunter.getName().replaceAll("[^A-Za-z0-9_-]", "_");
+        return directory.resolve(safeName + SUFFIX);
+    }
+
+    /**
+     * Writes a session to a file. The save is written to a temporary file first and then moved into
+     * place, so a crash halfway through never leaves a broken save behind.
+     *
+     * @param session The session to save; it must have a hunter and a town.
+     * @param file Where to save it.
+     */
+    public static void save(GameSession session, Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        write(session, buffer);
+        buffer.flip();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a saved game into a fresh session.
+     *
+     * @param file The save file.
+     * @param session A session that hasn't started yet; its modes, hunter and town get filled in.
+     */
+    public static void load(Path file, GameSession session) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException(file + " is too short to be a save file");
+                }
+            }
+        }
+        buffer.flip();
+        read(buffer, session);
+    }
+
+    /**
+     * Writes a session as one SIZE-byte record at the buffer's position.
+     *
+     * @param session The session to save.
+     * @param buffer A buffer with at least SIZE bytes remaining.
+     */
+    public static void write(GameSession session, ByteBuffer buffer) {
+        Hunter hunter = session.getHunter();
+        Town town = session.getCurrentTown();
+        int start = buffer.position();
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        int modes = 0;
+        if (session.isHardMode()) {
+            modes |= HARD;
+        }
+        if (session.isEasyMode()) {
+            modes |= EASY;
+        }
+        if (session.isSamuraiMode()) {
+            modes |= SAMURAI;
+        }
+        buffer.put((byte) modes);
+        byte[] name = nameBytes(hunter.getName());
+        buffer.put((byte) name.length);
+        buffer.put(name);
+        buffer.put(new byte[NAME_BYTES - name.length]);
+        buffer.putInt(hunter.getGold());
+        buffer.putInt(hunter.getKitBits());
+        buffer.putInt(hunter.getTreasureBits());
+        buffer.putInt(session.getTurns());
+        buffer.put((byte) town.getTerrain().getType().ordinal());
+        Treasure treasure = town.getTownTreasure();
+        buffer.put((byte) (treasure == null ? -1 : treasure.ordinal()));
+        int townFlags = 0;
+        if (town.isToughTown()) {
+            townFlags |= TOUGH_TOWN;
+        }
+        if (town.hasBeenDug()) {
+            townFlags |= DUG;
+        }
+        buffer.put((byte) townFlags);
+        buffer.put(brawlCode(town.getLastBrawlWon()));
+        buffer.position(start + SIZE);
+    }
+
+    /**
+     * Reads one SIZE-byte record from the buffer's position into a fresh session.
+     *
+     * @param buffer The saved record.
+     * @param session A session that hasn't started yet.
+     */
+    public static void read(ByteBuffer buffer, GameSession session) throws IOException {
+        int start = buffer.position();
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a Treasure Hunter save file");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported save file version " + version);
+        }
+        int modes = buffer.get();
+        session.setHardMode((modes & HARD) != 0);
+        session.setEasyMode((modes & EASY) != 0);
+        session.setSamuraiMode((modes & SAMURAI) != 0);
+        int nameLength = buffer.get();
+        if (nameLength < 0 || nameLength > NAME_BYTES) {
+            throw new IOException("Corrupt save file: bad name length " + nameLength);
+        }
+        byte[] name = new byte[nameLength];
+        buffer.get(name);
+        buffer.position(buffer.position() + NAME_BYTES - nameLength);
+        int gold = buffer.getInt();
+        int kit = buffer.getInt();
+        int treasures = buffer.getInt();
+        int turns = buffer.getInt();
+        int terrain = buffer.get();
+        int treasure = buffer.get();
+        int townFlags = buffer.get();
+        int brawl = buffer.get();
+        if (terrain < 0 || terrain >= TerrainType.VALUES.length || treasure < -1 || treasure >= Treasure.VALUES.length || brawl < 0 || brawl > 2) {
+            throw new IOException("Corrupt save file: bad town data");
+        }
+        buffer.position(start + SIZE);
+        // the hunter indexes tables by kit and treasures, so bits that can't happen must not get that far
+        int allItems = session.isSamuraiMode() ? ALL_ITEMS : ALL_ITEMS & ~Item.SWORD.getBit();
+        if ((kit & ~allItems) != 0 || Integer.bitCount(kit) > Hunter.kitSizeFor(session)) {
+            throw new IOException("Corrupt save file: bad kit " + Integer.toHexString(kit));
+        }
+        if ((treasures & ~ALL_TREASURE_BITS) != 0) {
+            throw new IOException("Corrupt save file: bad treasures " + Integer.toHexString(treasures));
+        }
+
+        Hunter hunter = new Hunter(new String(name, StandardCharsets.UTF_8), gold, kit, treasures, session);
+        Shop shop = new Shop(session.getMarkdown(), session);
+        Town town = new Town(shop, Terrain.of(TerrainType.VALUES[terrain]), (townFlags & TOUGH_TOWN) != 0,
+                treasure < 0 ? null : Treasure.VALUES[treasure], (townFlags & DUG) != 0, brawlName(brawl), session);
+        session.setHunter(hunter);
+        session.setCurrentTown(town);
+        session.setTurns(turns);
+    }
+
+    /**
+     * Encodes a name as UTF-8, cutting characters off the end until it fits in NAME_BYTES.
+     */
+    static byte[] nameBytes(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        while (bytes.length > NAME_BYTES) {
+            name = name.substring(0, name.length() - 1);
+            bytes = name.getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    private static byte brawlCode(String lastBrawlWon) {
+        if (lastBrawlWon == null) {
+            return 0;
+        }
+        return (byte) (lastBrawlWon.equals("won") ? 1 : 2);
+    }
+
+    private static String brawlName(int code) {
+        if (code == 1) {
+            return "won";
+        }
+        if (code == 2) {
+            return "lost";
+        }
+        return null;
+    }
+}
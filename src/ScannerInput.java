@@ -0,0 +1,22 @@
+import java.io.InputStream;
+import java.util.Scanner;
+
+/**
+ * Reads the player's lines from an InputStream (usually System.in) using a single Scanner.
+ */
+public class ScannerInput implements GameInput {
+    // instance variables
+    private final Scanner scanner;
+
+    public ScannerInput(InputStream in) {
+        scanner = new Scanner(in);
+    }
+
+    @Override
+    public String nextLine() {
+        if (!scanner.hasNextLine()) {
+            return null;
+        }
+        return scanner.nextLine();
+    }
+}
@@ -0,0 +1,161 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * How one finished game went, as kept on the Leaderboard.<p>
+ * Scores sort best first: wins ahead of losses, wins by fewest turns and then most gold, losses by most
+ * gold and then most turns survived, and finally the order the games were recorded in. Everything but that last tie-break is packed into a single key (see getKey()),
+ * which is what ranks are counted by.<p>
+ * On disk a score is a fixed RECORD bytes laid out like this (big-endian):
+ * <pre>
+ *  0  byte   marker, written last: 'S' once the record is complete, 0 if it was never finished
+ *  1  byte   mode: 'e', 'n', 'h' or 's'
+ *  2  byte   1 if the game was won
+ *  3  byte   length of the hunter's name in bytes
+ *  4  int    turns played
+ *  8  int    final gold
+ * 12  long   id, the order the game was recorded in
+ * 20  byte[] hunter's name, UTF-8, padded with zeros to SaveGame.NAME_BYTES
+ * 52         unused, up to RECORD
+ * </pre>
+ */
+public final class Score implements Comparable<Score> {
+    // constants
+    public static final int RECORD = 64;
+    static final int KEYS = 1 << 19; // won bit, then 18 bits of turns and gold
+    private static final int MAX_TURNS = (1 << 10) - 1;
+    private static final int MAX_GOLD = (1 << 8) - 1;
+    private static final byte MARKER = 'S';
+
+    // instance variables
+    private final long id;
+    private final String name;
+    private final String mode;
+    private final int turns;
+    private final int gold;
+    private final boolean won;
+    private final int key;
+
+    /**
+     * @param id The order the game was recorded in.
+     * @param name The hunter's name, without color codes.
+     * @param mode The mode answer: "e", "n", "h" or "s".
+     * @param turns How many turns the game lasted.
+     * @param gold The hunter's gold at the end.
+     * @param won Whether the hunter found all three treasures.
+     */
+    public Score(long id, String name, String mode, int turns, int gold, boolean won) {
+        this.id = id;
+        this.name = name;
+        this.mode = mode;
+        this.turns = turns;
+        this.gold = gold;
+        this.won = won;
+        key = keyOf(won, turns, gold);
+    }
+
+    /**
+     * Packs the parts of a score that rank it into one number, higher being better. Turns and gold
+     * beyond what the key has room for count the same as the most it can hold.
+     *
+     * @return A key from 0 up to (but not including) KEYS.
+     */
+    static int keyOf(boolean won, int turns, int gold) {
+        int turnsPlayed = Math.max(0, Math.min(turns, MAX_TURNS));
+        int goldKept = Math.max(0, Math.min(gold, MAX_GOLD));
+        if (won) {
+            return (1 << 18) | ((MAX_TURNS - turnsPlayed) << 8) | goldKept;
+        }
+        return (goldKept << 10) | turnsPlayed;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    public int getGold() {
+        return gold;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    /**
+     * @return The score's ranking key; a higher key is a better score.
+     */
+    public int getKey() {
+        return key;
+    }
+
+    @Override
+    public int compareTo(Score other) {
+        if (key != other.key) {
+            return Integer.compare(other.key, key);
+        }
+        return Long.compare(id, other.id);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Score && ((Score) other).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + mode + "): " + (won ? "won" : "lost") + " in " + turns + " turns with " + gold + " gold";
+    }
+
+    /**
+     * Writes the score as a record at an absolute position, leaving the buffer's own position alone
+     * so any number of threads can write different records into the same buffer at once.
+     * The marker byte goes in last, so a record cut short by a crash is never mistaken for a whole one.
+     */
+    void write(ByteBuffer buffer, int at) {
+        byte[] nameBytes = SaveGame.nameBytes(name);
+        buffer.put(at + 1, (byte) mode.charAt(0));
+        buffer.put(at + 2, (byte) (won ? 1 : 0));
+        buffer.put(at + 3, (byte) nameBytes.length);
+        buffer.putInt(at + 4, turns);
+        buffer.putInt(at + 8, gold);
+        buffer.putLong(at + 12, id);
+        buffer.put(at + 20, nameBytes);
+        buffer.put(at, MARKER);
+    }
+
+    /**
+     * Reads a record written by write().
+     *
+     * @return The score, or null if there is no complete record there.
+     */
+    static Score read(ByteBuffer buffer, int at) {
+        if (buffer.get(at) != MARKER) {
+            return null;
+        }
+        int nameLength = buffer.get(at + 3);
+        if (nameLength < 0 || nameLength > SaveGame.NAME_BYTES) {
+            return null;
+        }
+        byte[] nameBytes = new byte[nameLength];
+        buffer.get(at + 20, nameBytes);
+        return new Score(buffer.getLong(at + 12), new String(nameBytes, StandardCharsets.UTF_8),
+                String.valueOf((char) buffer.get(at + 1)), buffer.getInt(at + 4), buffer.getInt(at + 8), buffer.get(at + 2) == 1);
+    }
+}
@@ -0,0 +1,40 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Feeds the game a fixed list of lines, as fast as it asks for them, then reports the end of input.<p>
+ * Every line is always ready, so a scripted game never stops to flush its output until the script runs out.
+ */
+public class ScriptInput implements GameInput {
+    // instance variables
+    private final String[] lines;
+    private int next;
+
+    public ScriptInput(List<String> lines) {
+        this.lines = lines.toArray(new String[0]);
+        next = 0;
+    }
+
+    /**
+     * Reads a script file: one line of input per line of the file.
+     */
+    public static ScriptInput load(Path file) throws IOException {
+        return new ScriptInput(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String nextLine() {
+        if (next >= lines.length) {
+            return null;
+        }
+        return lines[next++];
+    }
+
+    @Override
+    public boolean ready() {
+        return true;
+    }
+}
@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.management.JMException;
+
+/**
+ * Lets players connect over TCP and each play their own game.<p>
+ * Every connection gets its own GameSession on its own virtual thread. A player sitting at a prompt
+ * is just a parked virtual thread waiting on a socket read, so one box can keep tens of thousands
+ * of mostly idle players connected without a platform thread for each.<p>
+ * The protocol is plain lines: the server sends the game's text followed by a line holding only
+ * SocketOutput.END_OF_FRAME, then waits for one line back. If a journal directory is given, every
+ * finished game is saved there as a Journal so it can be replayed later.<p>
+ * The server's GameMetrics are registered over JMX, and also printed every so often if a dump interval is given.
+ * If a number of shops is given, every player's shops trade on one shared Market (0 for none). Market games
+ * aren't journaled, since their prices depend on other players and could never be replayed the same way.
+ * If a leaderboard directory is given (- for none), every finished game is recorded on that Leaderboard.
+ * If a rules file is given (- for none), new games are played by it, and it is reloaded whenever it changes.
+ * If a telemetry directory is given, every finished game's town and shop outcomes are written there as Telemetry.
+ * Run it with: java SessionServer [port] [journal directory, or - for none] [seconds between metrics dumps, or 0]
+ * [market shops, or 0] [leaderboard directory, or -] [rules file, or -] [telemetry directory]
+ */
+public class SessionServer {
+    // constants
+    public static final int DEFAULT_PORT = 4545;
+    private static final int BACKLOG = 4096;
+    private static final int RESTOCK_SECONDS = 10;
+    private static final int COMPACT_SECONDS = 60;
+    private static final int RULES_CHECK_SECONDS = 5;
+
+    // instance variables
+    private final int port;
+    private final Path journalDirectory;
+    private Market market;
+    private Leaderboard leaderboard;
+    private Telemetry telemetry;
+
+    /**
+     * @param port The port to listen on.
+     * @param journalDirectory Where to save each game's journal, or null to not keep journals.
+     */
+    public SessionServer(int port, Path journalDirectory) {
+        this.port = port;
+        this.journalDirectory = journalDirectory;
+        market = null;
+        leaderboard = null;
+        telemetry = null;
+    }
+
+    /**
+     * @param market The market every player's shops trade on, or null for fixed catalog prices.
+     */
+    public void setMarket(Market market) {
+        this.market = market;
+    }
+
+    /**
+     * @param leaderboard The leaderboard every finished game is recorded on, or null for none.
+     */
+    public void setLeaderboard(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
+    /**
+     * @param telemetry Where every finished game's outcomes are written, or null for nowhere.
+     */
+    public void setTelemetry(Telemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        if (args.length > 0) {
+            port = Integer.parseInt(args[0]);
+        }
+        Path journalDirectory = null;
+        if (args.length > 1 && !args[1].equals("-")) {
+            journalDirectory = Path.of(args[1]);
+        }
+        try {
+            GameMetrics.shared().register();
+        } catch (JMException e) {
+            System.err.println("Metrics won't be available over JMX: " + e.getMessage());
+        }
+        if (args.length > 2 && Long.parseLong(args[2]) > 0) {
+            GameMetrics.shared().startDumping(System.out, Long.parseLong(args[2]));
+        }
+        SessionServer server = new SessionServer(port, journalDirectory);
+        if (args.length > 3 && Integer.parseInt(args[3]) > 0) {
+            Market market = new Market(Integer.parseInt(args[3]));
+            market.startRestocking(RESTOCK_SECONDS);
+            server.setMarket(market);
+            if (journalDirectory != null) {
+                System.err.println("Games on the market can't be replayed, so no journals will be kept");
+            }
+        }
+        if (args.length > 4 && !args[4].equals("-")) {
+            Leaderboard leaderboard = Leaderboard.open(Path.of(args[4]));
+            leaderboard.startCompacting(COMPACT_SECONDS);
+            server.setLeaderboard(leaderboard);
+        }
+        if (args.length > 5 && !args[5].equals("-")) {
+            RuleBook.startWatching(Path.of(args[5]), RULES_CHECK_SECONDS);
+        }
+        if (args.length > 6) {
+            Telemetry telemetry = Telemetry.open(Path.of(args[6]));
+            // write out the last, partly filled block when the server is stopped
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    telemetry.close();
+                } catch (IOException e) {
+                    System.err.println("Couldn't finish writing telemetry: " + e.getMessage());
+                }
+            }));
+            server.setTelemetry(telemetry);
+        }
+        server.serve();
+    }
+
+    /**
+     * Accepts players until the process is stopped.
+     */
+    public void serve() throws IOException {
+        try (ServerSocket server = new ServerSocket(port, BACKLOG);
+             ExecutorService players = Executors.newVirtualThreadPerTaskExecutor()) {
+            System.out.println("Treasure Hunter server listening on port " + port);
+            while (true) {
+                Socket socket = server.accept();
+                players.submit(() -> play(socket));
+            }
+        }
+    }
+
+    /**
+     * Plays one whole game over a connection, then hangs up.
+     *
+     * @param socket The player's connection.
+     */
+    private void play(Socket socket) {
+        // read ahead, so a client that sends several answers at once gets them played straight through
+        try (socket; ReadAheadInput input = new ReadAheadInput(
+                new ReaderInput(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)))) {
+            socket.setTcpNoDelay(true);
+            GameOutput output = new SocketOutput(socket.getOutputStream());
+            // a market game's prices depend on everyone else's trades, so its journal couldn't be replayed
+            if (journalDirectory == null || market != null) {
+                GameSession session = new GameSession(input, output);
+                session.setMarket(market);
+                session.setLeaderboard(leaderboard);
+                session.setTelemetry(telemetry);
+                new TreasureHunter(session).play();
+                return;
+            }
+            // take the rules once, so a reload can't come between the journal and the game
+            Journal journal = new Journal(ThreadLocalRandom.current().nextLong(), RuleBook.current());
+            GameSession session = new GameSession(journal.record(input), output, journal.getSeed(), journal.getRules());
+            session.setMarket(market);
+            session.setLeaderboard(leaderboard);
+            session.setTelemetry(telemetry);
+            new TreasureHunter(session).play();
+            journal.saveTo(journalDirectory);
+        } catch (IOException e) {
+            // the player went away; nothing else to clean up
+        }
+    }
+}
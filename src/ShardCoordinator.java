@@ -0,0 +1,308 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a Tournament too big for one JVM by splitting it into shards and farming them out to worker processes
+ * (ShardWorker) on the same machine.<p>
+ * A shard is a range of one bot's games in one mode. Each worker is a separate JVM with a small heap of its
+ * own, so no one garbage collector has to deal with the whole run, and it talks to the coordinator over its
+ * own loopback socket: it is sent one shard at a time and sends back that shard's TournamentStats. Workers
+ * that finish early just get more shards.<p>
+ * If a worker dies, its connection breaks, or it takes far longer than it should to send a shard back
+ * (a stuck bot, or a worker thrashing its heap), it is killed and the shard it was playing goes back on the
+ * queue for another worker, and a new worker is started in its place (up to RESTARTS_PER_WORKER times per worker).
+ * Every game gets the seed Tournament would give it, and TournamentStats merge exactly, so the report is
+ * the same as Tournament's for the same arguments, however the shards were shared out or re-run.
+ * Run it with: java ShardCoordinator [--rules file] [--workers count] [--shard games]
+ * [games per mode] [turn limit] [seed] [modes] [bot ...]
+ */
+public class ShardCoordinator {
+    // constants
+    private static final int DEFAULT_SHARD_GAMES = 10_000;
+    private static final int RESTARTS_PER_WORKER = 3;
+    private static final int CONNECT_SECONDS = 60;
+    private static final int POLL_MILLIS = 100;
+    private static final int SHARD_SECONDS = 60; // on top of the per-game allowance, for the worker warming up
+    private static final double SHARD_SECONDS_PER_GAME = 0.05; // bots play thousands of games a second
+    private static final String[] WORKER_OPTIONS = {"-XX:+UseSerialGC", "-Xmx256m"};
+
+    // instance variables
+    private final long seed;
+    private final int maxTurns;
+    private final String modes;
+    private final List<String> bots;
+    private final Path rulesFile;
+    private final int shardGames;
+    private final AtomicInteger restarts;
+
+    /**
+     * @param seed The run's seed.
+     * @param maxTurns How many moves each bot gets per game.
+     * @param modes The mode answers to play, for example "enhs".
+     * @param bots The bots, written the way Tournament.addBot() takes them.
+     * @param rulesFile A rules file for the workers to play by, or null for the standard rules.
+     * @param shardGames The most games in one shard.
+     */
+    public ShardCoordinator(long seed, int maxTurns, String modes, List<String> bots, Path rulesFile, int shardGames) {
+        this.seed = seed;
+        this.maxTurns = maxTurns;
+        this.modes = modes;
+        this.bots = bots;
+        this.rulesFile = rulesFile;
+        this.shardGames = shardGames;
+        restarts = new AtomicInteger();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> rest = new ArrayList<>();
+        Path rulesFile = null;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int shardGames = DEFAULT_SHARD_GAMES;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--rules") && i + 1 < args.length) {
+                rulesFile = Path.of(args[++i]);
+            } else if (args[i].equals("--workers") && i + 1 < args.length) {
+                workers = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--shard") && i + 1 < args.length) {
+                shardGames = Integer.parseInt(args[++i]);
+            } else {
+                rest.add(args[i]);
+            }
+        }
+        int games = rest.size() > 0 ? Integer.parseInt(rest.get(0)) : 20_000;
+        int maxTurns = rest.size() > 1 ? Integer.parseInt(rest.get(1)) : 200;
+        long seed = rest.size() > 2 ? Long.parseLong(rest.get(2)) : System.nanoTime();
+        String modes = rest.size() > 3 ? rest.get(3) : RuleBook.MODES;
+        List<String> bots = rest.size() > 4 ? rest.subList(4, rest.size()) : List.of("greedy", "random");
+        for (String bot : bots) {
+            Tournament.botFor(bot); // a bad bot should fail here, not in every worker
+        }
+
+        ShardCoordinator coordinator = new ShardCoordinator(seed, maxTurns, modes, bots, rulesFile, shardGames);
+        System.out.println("Playing " + games + " games per mode per bot on " + workers + " worker processes, turn limit "
+                + maxTurns + ", seed " + seed);
+        long start = System.nanoTime();
+        TournamentStats[][] results = coordinator.run(games, workers);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (int position = 0; position < modes.length(); position++) {
+            System.out.printf("Mode %s:%n", modes.charAt(position));
+            for (int bot = 0; bot < bots.size(); bot++) {
+                results[position][bot].printRow(System.out, Tournament.nameOf(bots.get(bot)));
+            }
+        }
+        System.out.printf("%d games in %.1f s (%.0f games/sec), %d workers restarted%n", (long) games * modes.length() * bots.size(),
+                seconds, games * modes.length() * bots.size() / seconds, coordinator.getRestarts());
+    }
+
+    /**
+     * Plays the whole run.
+     *
+     * @param games How many games each bot plays in each mode.
+     * @param workers How many worker processes to keep going.
+     * @return The merged stats, by the mode's place in the run and then the bot's.
+     * @throws IOException If workers kept failing and the run had to be given up.
+     */
+    public TournamentStats[][] run(int games, int workers) throws IOException, InterruptedException {
+        List<Shard> shards = new ArrayList<>();
+        for (int position = 0; position < modes.length(); position++) {
+            for (int bot = 0; bot < bots.size(); bot++) {
+                for (int from = 0; from < games; from += shardGames) {
+                    shards.add(new Shard(shards.size(), position, bot, from, Math.min(shardGames, games - from)));
+                }
+            }
+        }
+        BlockingDeque<Shard> pending = new LinkedBlockingDeque<>(shards);
+        TournamentStats[] done = new TournamentStats[shards.size()];
+        AtomicInteger remaining = new AtomicInteger(shards.size());
+        List<Thread> slots = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            int slot = i;
+            slots.add(Thread.ofPlatform().name("shard-worker-" + i).start(() -> keepWorking(slot, pending, done, remaining)));
+        }
+        for (Thread slot : slots) {
+            slot.join();
+        }
+        if (remaining.get() > 0) {
+            throw new IOException(remaining.get() + " shards were never played; workers failed " + restarts.get() + " times");
+        }
+
+        TournamentStats[][] results = new TournamentStats[modes.length()][bots.size()];
+        for (int position = 0; position < modes.length(); position++) {
+            for (int bot = 0; bot < bots.size(); bot++) {
+                results[position][bot] = new TournamentStats(maxTurns);
+            }
+        }
+        for (Shard shard : shards) {
+            results[shard.position][shard.bot].merge(done[shard.id]);
+        }
+        return results;
+    }
+
+    /**
+     * @return How many times a worker had to be started again because one failed.
+     */
+    public int getRestarts() {
+        return restarts.get();
+    }
+
+    /**
+     * Keeps one worker process going until every shard has been played, starting a new one whenever it fails.
+     */
+    private void keepWorking(int slot, BlockingDeque<Shard> pending, TournamentStats[] done, AtomicInteger remaining) {
+        int failures = 0;
+        while (remaining.get() > 0 && failures <= RESTARTS_PER_WORKER) {
+            Process process = null;
+            try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+                process = launch(server.getLocalPort());
+                try (Socket socket = accept(server, process)) {
+                    work(socket, pending, done, remaining);
+                }
+                process.waitFor(CONNECT_SECONDS, TimeUnit.SECONDS);
+                return;
+            } catch (IOException e) {
+                failures++;
+                if (remaining.get() > 0) {
+                    restarts.incrementAndGet();
+                    System.err.println("Worker " + slot + " failed (" + e + "), starting another");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                if (process != null && process.isAlive()) {
+                    process.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a connected worker the run, then shards until there are none left.
+     * A shard the worker doesn't send back goes back on the queue.
+     */
+    private void work(Socket socket, BlockingDeque<Shard> pending, TournamentStats[] done, AtomicInteger remaining)
+            throws IOException, InterruptedException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeLong(seed);
+        out.writeInt(maxTurns);
+        out.writeUTF(modes);
+        out.writeInt(bots.size());
+        for (String bot : bots) {
+            out.writeUTF(bot);
+        }
+        while (true) {
+            Shard shard = null;
+            // another worker's shard might still come back, so wait until every shard is actually done
+            while (shard == null && remaining.get() > 0) {
+                shard = pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            if (shard == null) {
+                out.writeInt(-1);
+                out.flush();
+                return;
+            }
+            try {
+                out.writeInt(shard.id);
+                out.writeInt(shard.position);
+                out.writeInt(shard.bot);
+                out.writeInt(shard.from);
+                out.writeInt(shard.count);
+                out.flush();
+                socket.setSoTimeout(timeoutMillis(shard));
+                int id;
+                try {
+                    id = in.readInt();
+                } catch (SocketTimeoutException e) {
+                    throw new IOException("stuck on shard " + shard.id + " for " + timeoutMillis(shard) / 1000 + " s", e);
+                }
+                if (id != shard.id) {
+                    throw new IOException("sent back shard " + id + " instead of " + shard.id);
+                }
+                done[shard.id] = TournamentStats.read(in);
+            } catch (IOException e) {
+                pending.addFirst(shard);
+                throw e;
+            }
+            remaining.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return How long a worker gets to send a shard back before it is given up on as stuck.
+     */
+    private static int timeoutMillis(Shard shard) {
+        return (int) Math.min(Integer.MAX_VALUE, 1000 * (SHARD_SECONDS + (long) Math.ceil(shard.count * SHARD_SECONDS_PER_GAME)));
+    }
+
+    /**
+     * Waits for a worker that was just started to connect, giving up straight away if it exits first.
+     */
+    private static Socket accept(ServerSocket server, Process process) throws IOException {
+        server.setSoTimeout(POLL_MILLIS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CONNECT_SECONDS);
+        while (true) {
+            try {
+                return server.accept();
+            } catch (SocketTimeoutException e) {
+                if (!process.isAlive()) {
+                    throw new IOException("exited with code " + process.exitValue() + " before connecting");
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IOException("didn't connect within " + CONNECT_SECONDS + " seconds");
+                }
+            }
+        }
+    }
+
+    private Process launch(int port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(List.of(WORKER_OPTIONS));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("ShardWorker");
+        command.add(String.valueOf(port));
+        if (rulesFile != null) {
+            command.add("--rules");
+            command.add(rulesFile.toString());
+        }
+        return new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    /**
+     * A range of one bot's games in one mode.
+     */
+    private static final class Shard {
+        private final int id;
+        private final int position; // the mode's place in the run
+        private final int bot;
+        private final int from;
+        private final int count;
+
+        Shard(int id, int position, int bot, int from, int count) {
+            this.id = id;
+            this.position = position;
+            this.bot = bot;
+            this.from = from;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One of ShardCoordinator's worker processes: connects back to the coordinator, plays whatever shards it is
+ * sent, and sends back each shard's TournamentStats, until it is told there are no more.<p>
+ * The coordinator first sends the run (seed, turn limit, modes and bots), then one shard at a time: its
+ * number, the mode's place in the run, the bot's place in the run, and the range of games. A shard number
+ * below zero means stop. Each shard's games get exactly the seeds Tournament would give them.
+ * ShardCoordinator starts these itself; there's no need to run one by hand.
+ */
+public class ShardWorker {
+
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(args[0]);
+        if (args.length > 2 && args[1].equals("--rules")) {
+            RuleBook.reload(Path.of(args[2]));
+        }
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            long seed = in.readLong();
+            int maxTurns = in.readInt();
+            String modes = in.readUTF();
+            List<Function<String, Strategy>> bots = new ArrayList<>();
+            int botCount = in.readInt();
+            for (int i = 0; i < botCount; i++) {
+                bots.add(Tournament.botFor(in.readUTF()));
+            }
+            Tournament tournament = new Tournament(maxTurns);
+            while (true) {
+                int shard = in.readInt();
+                if (shard < 0) {
+                    return;
+                }
+                int position = in.readInt();
+                int bot = in.readInt();
+                int from = in.readInt();
+                int count = in.readInt();
+                String mode = modes.substring(position, position + 1);
+                TournamentStats stats = new TournamentStats(maxTurns);
+                for (long gameSeed : Tournament.seedsFor(seed, position, from, count)) {
+                    tournament.playOne(bots.get(bot), mode, gameSeed, stats);
+                }
+                out.writeInt(shard);
+                stats.write(out);
+                out.flush();
+            }
+        }
+    }
+}
@@ -1,51 +1,84 @@
-import java.awt.*;
-import java.util.Scanner;
 
 /**
  * The Shop class controls the cost of the items in the Treasure Hunt game. <p>
  * The Shop class also acts as a go between for the Hunter's buyItem() method. <p>
+ * If the session trades on a Market, the shop is one of the market's shops and its prices and stock
+ * move with every trade anyone makes there; otherwise every item has its fixed catalog price. <p>
+ * A game only needs one Shop: every town's shop sells the same things at the same markdown, so the town
+ * calls nextTown() when the hunter moves on rather than making a new one. <p>
  * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
  */
 
 public class Shop {
     // constants
-    private static final int WATER_COST = 2;
-    private static final int ROPE_COST = 4;
-    private static final int MACHETE_COST = 6;
-    private static final int HORSE_COST = 12;
-    private static final int BOAT_COST = 20;
-    private static final int BOOT_COST = 10;
-    private static final int SHOVEL_COST = 8;
-    private static final int SWORD_COST = 0;
-
-    // static variables
-    private static final Scanner SCANNER = new Scanner(System.in);
+    private static final String INVENTORY = priceList(false);
+    private static final String INVENTORY_WITH_SWORD = priceList(true);
+    // the buy-back prices for each mode's markdown, worked out once and shared by every shop
+    private static final double[] MARKDOWNS = {1, 0.5, 0.25};
+    private static final int[][] BUY_BACK_COSTS = new int[MARKDOWNS.length][];
+    static {
+        for (int i = 0; i < MARKDOWNS.length; i++) {
+            BUY_BACK_COSTS[i] = buyBackCostsFor(MARKDOWNS[i]);
+        }
+    }
 
     // instance variables
     private double markdown;
+    private int[] buyBackCosts; // indexed by Item ordinal
     private Hunter customer;
+    private GameSession session;
+    private GameOutput window;
+    private Market market;
+    private int shopId;
 
     /**
      * The Shop constructor takes in a markdown value and leaves customer null until one enters the shop.
      *
      * @param markdown Percentage of markdown for selling items in decimal format.
+     * @param session The game session the shop belongs to.
      */
-    public Shop(double markdown) {
+    public Shop(double markdown, GameSession session) {
         this.markdown = markdown;
+        buyBackCosts = null;
+        for (int i = 0; i < MARKDOWNS.length; i++) {
+            if (MARKDOWNS[i] == markdown) {
+                buyBackCosts = BUY_BACK_COSTS[i];
+            }
+        }
+        if (buyBackCosts == null) {
+            buyBackCosts = buyBackCostsFor(markdown);
+        }
+        this.session = session;
+        this.window = session.getOutput();
+        market = session.getMarket();
+        nextTown();
         customer = null; // customer is set in the enter method
     }
-    public void setupTestMode(Hunter hunter) {
-        customer = hunter;
+
+    /**
+     * Moves the shop to the next town. With a market that means trading as another of its shops;
+     * with fixed prices nothing changes.
+     */
+    public void nextTown() {
+        if (market != null) {
+            shopId = market.pickShop();
+        }
+    }
+
+    /**
+     * Sets a hunter up for testing: lots of gold and every item but the sword.
+     *
+     * @param hunter The hunter to set up.
+     */
+    public static void setupTestMode(Hunter hunter) {
         // Give hunter enough gold to have 100 after buying everything
         hunter.changeGold(80);
         // Add all items
-        hunter.addItem("water");
-        hunter.addItem("rope");
-        hunter.addItem("machete");
-        hunter.addItem("horse");
-        hunter.addItem("boat");
-        hunter.addItem("boots");
-        hunter.addItem("shovel");
+        for (Item item : Item.VALUES) {
+            if (item != Item.SWORD) {
+                hunter.addItem(item);
+            }
+        }
     }
 
     /**
@@ -58,41 +91,41 @@ public class Shop {
     public String enter(Hunter hunter, String buyOrSell) {
         customer = hunter;
         if (buyOrSell.equals("b")) {
-            TreasureHunter.window.addTextToWindow("Welcome to the shop! We have the finest wares in town.", Color.BLACK);
-            TreasureHunter.window.addTextToWindow("Currently we have the following items:",Color.black);
-            TreasureHunter.window.addTextToWindow(inventory(), Color.BLACK);
-            System.out.print("What're you lookin' to buy? ");
-            String item = SCANNER.nextLine().toLowerCase();
+            window.addTextToWindow("Welcome to the shop! We have the finest wares in town.", TextStyle.PLAIN);
+            window.addTextToWindow("Currently we have the following items:",TextStyle.PLAIN);
+            window.addTextToWindow(inventory(), TextStyle.PLAIN);
+            window.prompt("What're you lookin' to buy? ");
+            Item item = Item.forName(session.nextLine());
             int cost = checkMarketPrice(item, true);
-            if (TreasureHunter.isSamuraiMode() && item.equals("sword")) {
-                System.out.print("It'll cost you " +Colors.formatGold(cost + " gold. ") + "Buy it (y/n)? ");
-                String option = SCANNER.nextLine().toLowerCase();
+            if (session.isSamuraiMode() && item == Item.SWORD) {
+                window.prompt("It'll cost you " +Colors.formatGold(cost + " gold. ") + "Buy it (y/n)? ");
+                String option = session.nextLine();
                 if (option.equals("y")) {
                     buyItem(item);
                 }
             }   else if (cost == 0) {
-                TreasureHunter.window.addTextToWindow("We ain't got none of those.",Color.black);
+                window.addTextToWindow("We ain't got none of those.",TextStyle.PLAIN);
             }   else {
-                if (hunter.hasItemInKit("sword")) {
-                    System.out.print("Is that a s-sword?! You know what, its on the house, no cost at all b-bud! (y/n)");
+                if (hunter.hasItemInKit(Item.SWORD)) {
+                    window.prompt("Is that a s-sword?! You know what, its on the house, no cost at all b-bud! (y/n)");
                 }   else {
-                    System.out.print("It'll cost you " + Colors.formatGold(cost + " gold. ") + "Buy it (y/n)? ");
+                    window.prompt("It'll cost you " + Colors.formatGold(cost + " gold. ") + "Buy it (y/n)? ");
                 }
-                String option = SCANNER.nextLine().toLowerCase();
+                String option = session.nextLine();
                 if (option.equals("y")) {
                     buyItem(item);
                 }
             }
         } else {
-            TreasureHunter.window.addTextToWindow("What're you lookin' to sell? ", Color.BLACK);
-            System.out.print("You currently have the following items: " + customer.getInventory());
-            String item = SCANNER.nextLine().toLowerCase();
+            window.addTextToWindow("What're you lookin' to sell? ", TextStyle.PLAIN);
+            window.prompt("You currently have the following items: " + customer.getInventory());
+            Item item = Item.forName(session.nextLine());
             int cost = checkMarketPrice(item, false);
             if (cost == 0) {
-                TreasureHunter.window.addTextToWindow("We don't want none of those.", Color.black);
+                window.addTextToWindow("We don't want none of those.", TextStyle.PLAIN);
             } else {
-                System.out.print("It'll get you " + Colors.formatGold( cost + " gold. ") + "Sell it (y/n)? ");
-                String option = SCANNER.nextLine().toLowerCase();
+                window.prompt("It'll get you " + Colors.formatGold( cost + " gold. ") + "Sell it (y/n)? ");
+                String option = session.nextLine();
                 if (option.equals("y")) {
                     sellItem(item);
                 }
@@ -108,17 +141,51 @@ public class Shop {
      * @return the string representing the shop's items available for purchase and their prices.
      */
     public String inventory() {
-        String str = "Water: " + Colors.formatGold(WATER_COST + " gold\n");
-        str += "Rope: " + Colors.formatGold( ROPE_COST + " gold\n");
-        str += "Machete: " + Colors.formatGold(MACHETE_COST + " gold\n");
-        str += "Horse: " + Colors.formatGold(HORSE_COST + " gold\n");
-        str += "Boat: " + Colors.formatGold(BOAT_COST + " gold\n");
-        str += "Boots: " + Colors.formatGold(BOOT_COST + " gold\n");
-        str += "Shovel: " + Colors.formatGold(SHOVEL_COST + " gold\n");
-        if (TreasureHunter.isSamuraiMode()) {
-            str += "Sword: " + Colors.formatGold(SWORD_COST + " gold\n");
+        if (market != null) {
+            return marketPriceList();
+        }
+        return session.isSamuraiMode() ? INVENTORY_WITH_SWORD : INVENTORY;
+    }
+
+    /**
+     * Market prices change all the time, so this list is built fresh on each visit.
+     */
+    private String marketPriceList() {
+        StringBuilder str = new StringBuilder();
+        for (Item item : Item.VALUES) {
+            if (item == Item.SWORD) {
+                if (session.isSamuraiMode()) {
+                    str.append(item.getLabel()).append(": ").append(Colors.formatGold(item.getCost() + " gold")).append('\n');
+                }
+            } else if (market.getStock(shopId, item) == 0) {
+                str.append(item.getLabel()).append(": sold out\n");
+            } else {
+                str.append(item.getLabel()).append(": ").append(Colors.formatGold(market.getPrice(shopId, item) + " gold"))
+                        .append(" (").append(market.getStock(shopId, item)).append(" left)\n");
+            }
+        }
+        return str.toString();
+    }
+
+    private static int[] buyBackCostsFor(double markdown) {
+        int[] costs = new int[Item.VALUES.length];
+        for (Item item : Item.VALUES) {
+            costs[item.ordinal()] = item.getBuyBackCost(markdown);
+        }
+        return costs;
+    }
+
+    /**
+     * Builds the price list once for every shop; prices never change, so there's no reason to redo it on each visit.
+     */
+    private static String priceList(boolean withSword) {
+        StringBuilder str = new StringBuilder();
+        for (Item item : Item.VALUES) {
+            if (item != Item.SWORD || withSword) {
+                str.append(item.getLabel()).append(": ").append(Colors.formatGold(item.getCost() + " gold")).append('\n');
+            }
         }
-        return str;
+        return str.toString();
     }
 
     /**
@@ -127,12 +194,38 @@ public class Shop {
      * @param item The item being bought.
      */
     public void buyItem(String item) {
+        buyItem(Item.forName(item));
+    }
+
+    public void buyItem(Item item) {
         int costOfItem = checkMarketPrice(item, true);
-        if (customer.buyItem(item, costOfItem)) {
-            TreasureHunter.window.addTextToWindow("Ye' got yerself a " + item + ". Come again soon.", Color.black);
+        if (usesMarket(item)) {
+            costOfItem = buyFromMarket(item, costOfItem);
+        }
+        if (item != null && costOfItem >= 0 && customer.buyItem(item, costOfItem)) {
+            session.getMetrics().bought(item);
+            session.getTrace().bought(item);
+            window.addTextToWindow("Ye' got yerself a " + item.getName() + ". Come again soon.", TextStyle.PLAIN);
         } else {
-            TreasureHunter.window.addTextToWindow("Hmm, either you don't have enough gold or you've already got one of those!", Color.black);
+            if (usesMarket(item) && costOfItem >= 0) {
+                market.sell(shopId, item); // the sale fell through, so put it back on the shelf
+            }
+            window.addTextToWindow("Hmm, either you don't have enough gold or you've already got one of those!", TextStyle.PLAIN);
+        }
+    }
+
+    /**
+     * Takes one off the market's shelf for the customer. The price may have moved since the customer was
+     * told it, so they pay whatever it is now, as long as they still can.
+     *
+     * @return What it cost, or -1 if there was nothing to take or the customer couldn't have it.
+     */
+    private int buyFromMarket(Item item, int quotedCost) {
+        if (quotedCost <= 0 || customer.hasItemInKit(item)) {
+            return -1;
         }
+        int most = session.isSamuraiMode() ? Integer.MAX_VALUE : customer.getGold();
+        return market.buy(shopId, item, most);
     }
 
     /**
@@ -141,11 +234,27 @@ public class Shop {
      * @param item The item being sold.
      */
     public void sellItem(String item) {
+        sellItem(Item.forName(item));
+    }
+
+    public void sellItem(Item item) {
         int buyBackPrice = checkMarketPrice(item, false);
-        if (customer.sellItem(item, buyBackPrice)) {
-            TreasureHunter.window.addTextToWindow("Pleasure doin' business with you.", Color.black);
+        boolean shelved = false;
+        if (usesMarket(item) && buyBackPrice > 0 && customer.hasItemInKit(item)) {
+            // the shop pays whatever the price is by now
+            int price = market.sell(shopId, item);
+            shelved = price > 0;
+            buyBackPrice = (int) (price * markdown);
+        }
+        if (item != null && customer.sellItem(item, buyBackPrice)) {
+            session.getMetrics().sold(item);
+            session.getTrace().sold(item);
+            window.addTextToWindow("Pleasure doin' business with you.", TextStyle.PLAIN);
         } else {
-            TreasureHunter.window.addTextToWindow("Stop stringin' me along!", Color.black);
+            if (shelved) {
+                market.buy(shopId, item, Integer.MAX_VALUE); // the sale fell through, so take it back off the shelf
+            }
+            window.addTextToWindow("Stop stringin' me along!", TextStyle.PLAIN);
         }
     }
 
@@ -157,6 +266,10 @@ public class Shop {
      * @return The cost of buying or selling the item based on the isBuying parameter.
      */
     public int checkMarketPrice(String item, boolean isBuying) {
+        return checkMarketPrice(Item.forName(item), isBuying);
+    }
+
+    public int checkMarketPrice(Item item, boolean isBuying) {
         if (isBuying) {
             return getCostOfItem(item);
         } else {
@@ -165,45 +278,49 @@ public class Shop {
     }
 
     /**
-     * Checks the item entered against the costs listed in the static variables.
+     * Looks the item entered up in the item catalog.
      *
      * @param item The item being checked for cost.
      * @return The cost of the item or 0 if the item is not found.
      */
     public int getCostOfItem(String item) {
-        switch (item) {
-            case "water":
-                return WATER_COST;
-            case "rope":
-                return ROPE_COST;
-            case "machete":
-                return MACHETE_COST;
-            case "horse":
-                return HORSE_COST;
-            case "boat":
-                return BOAT_COST;
-            case "boots":
-                return BOOT_COST;
-            case "shovel":
-                return SHOVEL_COST;
-            case "sword":
-                if (TreasureHunter.isSamuraiMode()) {
-                    return SWORD_COST;
-                }
-                return 0;
-            default:
-                return 0;
+        return getCostOfItem(Item.forName(item));
+    }
+
+    public int getCostOfItem(Item item) {
+        if (item == null || (item == Item.SWORD && !session.isSamuraiMode())) {
+            return 0;
         }
+        if (usesMarket(item)) {
+            return market.getPrice(shopId, item);
+        }
+        return item.getCost();
     }
 
     /**
-     * Checks the cost of an item and applies the markdown.
+     * Checks the cost of an item with the markdown applied.
      *
      * @param item The item being sold.
      * @return The sell price of the item.
      */
     public int getBuyBackCost(String item) {
-        int cost = (int) (getCostOfItem(item) * markdown);
-        return cost;
+        return getBuyBackCost(Item.forName(item));
+    }
+
+    public int getBuyBackCost(Item item) {
+        if (item == null) {
+            return 0;
+        }
+        if (usesMarket(item)) {
+            return (int) (market.getSellPrice(shopId, item) * markdown);
+        }
+        return buyBackCosts[item.ordinal()];
+    }
+
+    /**
+     * The sword is a samurai's own and never passes through the market.
+     */
+    private boolean usesMarket(Item item) {
+        return market != null && item != null && item != Item.SWORD;
     }
 }
\ No newline at end of file
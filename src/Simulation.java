@@ -0,0 +1,118 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Plays huge numbers of Treasure Hunter games with a Strategy and no window, spread over every core
+ * with fork-join, to find out how winnable each mode really is.<p>
+ * Each batch of games gets its own SplittableRandom split off from the run's seed, and each game is seeded
+ * from its batch's generator, so workers never share a generator and the same seed always gives the same
+ * results no matter how many cores run it.<p>
+ * Run it with: java Simulation [games per mode] [turn limit] [seed]
+ */
+public class Simulation {
+    // constants
+    private static final String[] MODES = {"e", "n", "h", "s"};
+    private static final int GAMES_PER_TASK = 512;
+    private static final GameOutput NO_OUTPUT = new NullOutput();
+
+    // instance variables
+    private final Supplier<Strategy> strategies;
+    private final int maxTurns;
+
+    /**
+     * @param strategies Makes a Strategy for each game, so strategies that remember things don't get shared.
+     * @param maxTurns How many moves a hunter gets before giving up.
+     */
+    public Simulation(Supplier<Strategy> strategies, int maxTurns) {
+        this.strategies = strategies;
+        this.maxTurns = maxTurns;
+    }
+
+    public static void main(String[] args) {
+        int games = 100_000;
+        int maxTurns = 200;
+        if (args.length > 0) {
+            games = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            maxTurns = Integer.parseInt(args[1]);
+        }
+        long seed = System.nanoTime();
+        if (args.length > 2) {
+            seed = Long.parseLong(args[2]);
+        }
+        Simulation simulation = new Simulation(GreedyStrategy::new, maxTurns);
+        System.out.println("Playing " + games + " games per mode on " + ForkJoinPool.commonPool().getParallelism() + " threads, seed " + seed);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (String mode : MODES) {
+            long start = System.nanoTime();
+            SimulationStats stats = simulation.run(mode, games, random.split());
+            double seconds = (System.nanoTime() - start) / 1e9;
+            stats.printReport(System.out);
+            System.out.printf("  (%.0f games/sec)%n", games / seconds);
+        }
+    }
+
+    /**
+     * Plays a batch of games in one mode on the common fork-join pool.
+     *
+     * @param mode The mode answer ("e", "n", "h" or "s").
+     * @param games How many games to play.
+     * @param random Where the games' seeds come from; it gets split between the workers.
+     * @return The combined results.
+     */
+    public SimulationStats run(String mode, int games, SplittableRandom random) {
+        return ForkJoinPool.commonPool().invoke(new Batch(mode, 0, games, random));
+    }
+
+    /**
+     * Plays a single game from start to finish and adds it to the stats.
+     *
+     * @param mode The mode answer.
+     * @param seed The game's seed.
+     * @param stats Where to record the result.
+     */
+    public void playOne(String mode, long seed, SimulationStats stats) {
+        StrategyInput input = new StrategyInput(strategies.get(), "bot", mode, maxTurns);
+        GameSession session = new GameSession(input, NO_OUTPUT, seed);
+        input.setSession(session);
+        new TreasureHunter(session).play();
+        stats.record(session, input);
+    }
+
+    /**
+     * Splits a range of games in half until it is small enough to play straight through.
+     * Each piece keeps its own stats, so workers never share anything while they play.
+     */
+    private class Batch extends RecursiveTask<SimulationStats> {
+        private final String mode;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        Batch(String mode, int from, int to, SplittableRandom random) {
+            this.mode = mode;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected SimulationStats compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                SimulationStats stats = new SimulationStats(mode, maxTurns);
+                for (int i = from; i < to; i++) {
+                    playOne(mode, random.nextLong(), stats);
+                }
+                return stats;
+            }
+            int middle = (from + to) >>> 1;
+            Batch left = new Batch(mode, from, middle, random.split());
+            left.fork();
+            SimulationStats right = new Batch(mode, middle, to, random).compute();
+            return left.join().merge(right);
+        }
+    }
+}
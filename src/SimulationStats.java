@@ -0,0 +1,194 @@
+import java.io.PrintStream;
+
+/**
+ * Tallies the results of many simulated games played in one mode.<p>
+ * Everything is kept as plain counts, so two SimulationStats can be merged exactly no matter
+ * how the games were split up between threads.
+ */
+public class SimulationStats {
+    // constants
+    private static final int GOLD_BUCKETS = 202; // bucket 0 is "in debt", then 0..199 gold, then 200+
+    private static final int[] REPORT_TURNS = {1, 5, 10, 25, 50, 100, 200, 500};
+
+    // instance variables
+    private final String mode;
+    private final int maxTurns;
+    private long games;
+    private long wins;
+    private long gameOvers;
+    private long quits;
+    private final long[] turnsToWin;
+    private final long[] finalGold;
+    private final long[] goldCurve; // one row of GOLD_BUCKETS per turn
+
+    /**
+     * @param mode The mode answer the games were played in ("e", "n", "h" or "s").
+     * @param maxTurns The turn limit the games were played with.
+     */
+    public SimulationStats(String mode, int maxTurns) {
+        this.mode = mode;
+        this.maxTurns = maxTurns;
+        turnsToWin = new long[maxTurns + 1];
+        finalGold = new long[GOLD_BUCKETS];
+        goldCurve = new long[maxTurns * GOLD_BUCKETS];
+    }
+
+    /**
+     * Adds one finished game.
+     *
+     * @param session The session after play() has returned.
+     * @param input The StrategyInput that played it.
+     */
+    public void record(GameSession session, StrategyInput input) {
+        Hunter hunter = session.getHunter();
+        int moves = input.getMoves();
+        games++;
+        if (hunter.checkWin()) {
+            wins++;
+            turnsToWin[Math.min(moves, maxTurns)]++;
+        } else if (hunter.getGold() < 0) {
+            gameOvers++;
+        } else {
+            quits++;
+        }
+        finalGold[goldBucket(hunter.getGold())]++;
+        for (int turn = 0; turn < moves; turn++) {
+            goldCurve[turn * GOLD_BUCKETS + goldBucket(input.getGoldAtTurn(turn))]++;
+        }
+    }
+
+    /**
+     * Adds all of another SimulationStats' games into this one.
+     *
+     * @param other Stats for the same mode and turn limit.
+     * @return this, to make joining results easy.
+     */
+    public SimulationStats merge(SimulationStats other) {
+        games += other.games;
+        wins += other.wins;
+        gameOvers += other.gameOvers;
+        quits += other.quits;
+        addAll(turnsToWin, other.turnsToWin);
+        addAll(finalGold, other.finalGold);
+        addAll(goldCurve, other.goldCurve);
+        return this;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public long getGameOvers() {
+        return gameOvers;
+    }
+
+    public long getQuits() {
+        return quits;
+    }
+
+    /**
+     * @return The fraction of games that ended in a win.
+     */
+    public double getWinRate() {
+        if (games == 0) {
+            return 0;
+        }
+        return (double) wins / games;
+    }
+
+    /**
+     * Prints a summary of the win rate, the turns it took to win and how gold changed over the games.
+     *
+     * @param out Where to print it.
+     */
+    public void printReport(PrintStream out) {
+        out.printf("Mode %s: %d games, %.2f%% won, %.2f%% game over, %.2f%% out of turns%n",
+                mode, games, percent(wins), percent(gameOvers), percent(quits));
+        if (wins > 0) {
+            out.printf("  Turns to win: p10 %d, p50 %d, p90 %d%n",
+                    percentile(turnsToWin, 0, turnsToWin.length, 0.1),
+                    percentile(turnsToWin, 0, turnsToWin.length, 0.5),
+                    percentile(turnsToWin, 0, turnsToWin.length, 0.9));
+        }
+        out.printf("  Final gold: p10 %s, p50 %s, p90 %s%n",
+                goldLabel(percentile(finalGold, 0, GOLD_BUCKETS, 0.1)),
+                goldLabel(percentile(finalGold, 0, GOLD_BUCKETS, 0.5)),
+                goldLabel(percentile(finalGold, 0, GOLD_BUCKETS, 0.9)));
+        for (int turn : REPORT_TURNS) {
+            if (turn > maxTurns) {
+                break;
+            }
+            int start = (turn - 1) * GOLD_BUCKETS;
+            long stillPlaying = 0;
+            for (int i = start; i < start + GOLD_BUCKETS; i++) {
+                stillPlaying += goldCurve[i];
+            }
+            if (stillPlaying == 0) {
+                break;
+            }
+            out.printf("  Gold at turn %d (%d still playing): p10 %s, p50 %s, p90 %s%n", turn, stillPlaying,
+                    goldLabel(percentile(goldCurve, start, GOLD_BUCKETS, 0.1) - start),
+                    goldLabel(percentile(goldCurve, start, GOLD_BUCKETS, 0.5) - start),
+                    goldLabel(percentile(goldCurve, start, GOLD_BUCKETS, 0.9) - start));
+        }
+    }
+
+    private double percent(long count) {
+        if (games == 0) {
+            return 0;
+        }
+        return 100.0 * count / games;
+    }
+
+    private static int goldBucket(int gold) {
+        if (gold < 0) {
+            return 0;
+        }
+        return Math.min(gold, GOLD_BUCKETS - 2) + 1;
+    }
+
+    private static String goldLabel(int bucket) {
+        if (bucket == 0) {
+            return "in debt";
+        }
+        if (bucket == GOLD_BUCKETS - 1) {
+            return (GOLD_BUCKETS - 2) + "+";
+        }
+        return String.valueOf(bucket - 1);
+    }
+
+    /**
+     * Finds the index of the bucket that holds the given fraction of a histogram.
+     *
+     * @return The array index of that bucket.
+     */
+    private static int percentile(long[] histogram, int start, int length, double fraction) {
+        long total = 0;
+        for (int i = start; i < start + length; i++) {
+            total += histogram[i];
+        }
+        long target = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = start; i < start + length; i++) {
+            seen += histogram[i];
+            if (seen >= target && seen > 0) {
+                return i;
+            }
+        }
+        return start + length - 1;
+    }
+
+    private static void addAll(long[] into, long[] from) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] += from[i];
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sends the game's text down a socket, one line at a time.<p>
+ * Text is buffered until the game waits for input; then a line holding just END_OF_FRAME is added
+ * and everything is sent at once, so a client can tell when the game is done talking and wants an answer.
+ * Once the connection breaks, everything after that is quietly dropped.<p>
+ * Clients are terminals more often than not (telnet, nc and the like), so styles are sent as ANSI escape codes;
+ * the END_OF_FRAME line itself is always plain, so clients can still look for it as is.
+ */
+public class SocketOutput implements GameOutput {
+    // constants
+    public static final String END_OF_FRAME = ">";
+
+    // instance variables
+    private final Writer writer;
+    private final StringBuilder line;
+    private final StyledText spans;
+    private char[] chars; // the line, copied out so writing it doesn't make a String
+    private boolean broken;
+
+    public SocketOutput(OutputStream out) {
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        line = new StringBuilder();
+        spans = new StyledText();
+        chars = new char[256];
+        broken = false;
+    }
+
+    @Override
+    public void addTextToWindow(String text, TextStyle style) {
+        write(text, style);
+    }
+
+    @Override
+    public void prompt(String text) {
+        write(text, TextStyle.PLAIN);
+    }
+
+    @Override
+    public void clear() {
+        write("", TextStyle.PLAIN);
+    }
+
+    @Override
+    public void flush() {
+        write(END_OF_FRAME, TextStyle.PLAIN);
+        if (!broken) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                broken = true;
+            }
+        }
+    }
+
+    private void write(String text, TextStyle style) {
+        if (broken) {
+            return;
+        }
+        line.setLength(0);
+        spans.appendAnsi(line, text, style);
+        if (chars.length < line.length()) {
+            chars = new char[Math.max(line.length(), 2 * chars.length)];
+        }
+        line.getChars(0, line.length(), chars, 0);
+        try {
+            writer.write(chars, 0, line.length());
+            writer.write('\n');
+        } catch (IOException e) {
+            broken = true;
+        }
+    }
+}
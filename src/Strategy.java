@@ -0,0 +1,15 @@
+/**
+ * A Strategy decides what a computer-controlled hunter does on each trip through the main menu.<p>
+ * Moves are written the same way a player would type them, with an optional item for the shop,
+ * for example "d", "m" or "b shovel". StrategyInput turns them into the lines the game reads.
+ */
+public interface Strategy {
+
+    /**
+     * Picks the next move.
+     *
+     * @param session The session being played; the strategy may look at the hunter and town but shouldn't change them.
+     * @return The move to make.
+     */
+    String nextMove(GameSession session);
+}
@@ -0,0 +1,87 @@
+import java.util.ArrayDeque;
+
+/**
+ * A GameInput that lets a Strategy play the game instead of a person.<p>
+ * It answers the welcome questions with a fixed name and mode, then asks the strategy for a move every
+ * time the main menu wants one. A shop move like "b rope" is fed to the game as "b", "rope" and "y".
+ * The shop doesn't always ask for the "y" (it won't for something it doesn't sell, for instance), so any
+ * answers still waiting when the main menu comes round again are dropped instead of being taken as a move.
+ * Once the turn limit is reached it answers "x" so that no game can run forever.
+ */
+public class StrategyInput implements GameInput {
+    // instance variables
+    private final Strategy strategy;
+    private GameSession session;
+    private final int maxTurns;
+    private final ArrayDeque<String> pending;
+    private int pendingTurn; // the turn the pending answers belong to
+    private final int[] goldByTurn;
+    private int moves;
+
+    /**
+     * Sets up the input; call setSession once the session using this input has been made.
+     *
+     * @param strategy The strategy making the moves.
+     * @param name The hunter's name.
+     * @param mode The mode answer: "e", "n", "h" or "s".
+     * @param maxTurns The most moves the strategy gets before the hunter gives up.
+     */
+    public StrategyInput(Strategy strategy, String name, String mode, int maxTurns) {
+        this.strategy = strategy;
+        session = null;
+        this.maxTurns = maxTurns;
+        pending = new ArrayDeque<>();
+        pending.add(name);
+        pending.add(mode);
+        pendingTurn = 0;
+        goldByTurn = new int[maxTurns];
+        moves = 0;
+    }
+
+    /**
+     * @param session The session this input is feeding, so the strategy can look at it.
+     */
+    public void setSession(GameSession session) {
+        this.session = session;
+    }
+
+    @Override
+    public String nextLine() {
+        if (!pending.isEmpty()) {
+            if (session.getTurns() == pendingTurn) {
+                return pending.poll();
+            }
+            pending.clear(); // the game didn't ask for them
+        }
+        if (moves >= maxTurns) {
+            return "x";
+        }
+        goldByTurn[moves] = session.getHunter().getGold();
+        moves++;
+        String move = strategy.nextMove(session);
+        int space = move.indexOf(' ');
+        if (space < 0) {
+            return move;
+        }
+        // shop moves also answer the "which item" and "buy it (y/n)" questions
+        pending.add(move.substring(space + 1));
+        pending.add("y");
+        pendingTurn = session.getTurns();
+        return move.substring(0, space);
+    }
+
+    /**
+     * @return How many moves the strategy has made.
+     */
+    public int getMoves() {
+        return moves;
+    }
+
+    /**
+     * @param turn A turn number, starting at 0.
+     * @return The hunter's gold right before the move on that turn.
+     */
+    public int getGoldAtTurn(int turn) {
+        return goldByTurn[turn];
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Splits a message into runs of text that share a style.<p>
+ * Messages are built with the escape codes from Colors mixed into them, which is how the game has always
+ * marked up names, gold and so on. An output that can't pass those codes straight through, like the Swing
+ * window, walks the message with one of these instead: each call to next() moves on to the next run, with
+ * the codes themselves left out, and a reset going back to the line's own style. One StyledText can be
+ * reused for any number of messages, and walking one doesn't create any objects.
+ * <pre>
+ * spans.reset(text, style);
+ * while (spans.next()) {
+ *     show(text.substring(spans.getStart(), spans.getEnd()), spans.getStyle());
+ * }
+ * </pre>
+ */
+public class StyledText {
+    // constants
+    private static final char ESCAPE = '\033';
+
+    // instance variables
+    private String text;
+    private TextStyle base;
+    private TextStyle current;
+    private int position;
+    private int start;
+    private int end;
+    private TextStyle style;
+
+    /**
+     * Starts walking a new message.
+     *
+     * @param text The message, possibly holding escape codes.
+     * @param base The style of the line as a whole, which a reset goes back to.
+     */
+    public void reset(String text, TextStyle base) {
+        this.text = text;
+        this.base = base;
+        current = base;
+        position = 0;
+    }
+
+    /**
+     * Moves on to the next run of text.
+     *
+     * @return false once the whole message has been walked.
+     */
+    public boolean next() {
+        while (position < text.length()) {
+            // skip over any codes, keeping track of the style they switch to
+            int codeEnd;
+            while (position < text.length() && (codeEnd = codeEnd(position)) > 0) {
+                TextStyle switched = TextStyle.forAnsi(text, position, codeEnd);
+                if (switched == TextStyle.PLAIN) {
+                    current = base;
+                } else if (switched != null) {
+                    current = switched;
+                }
+                position = codeEnd;
+            }
+            if (position < text.length()) {
+                // anything else, a stray escape included, is text up to the next escape
+                int next = text.indexOf(ESCAPE, position + 1);
+                if (next < 0) {
+                    next = text.length();
+                }
+                start = position;
+                end = next;
+                style = current;
+                position = next;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Only a whole code, an escape then "[", digits and semicolons, then "m", counts as one; names typed by
+     * players can hold anything, so a stray escape mustn't swallow the text after it.
+     *
+     * @param at Where an escape might start a code.
+     * @return Just past the code's "m", or -1 if there isn't a whole code there.
+     */
+    private int codeEnd(int at) {
+        if (text.charAt(at) != ESCAPE || at + 1 >= text.length() || text.charAt(at + 1) != '[') {
+            return -1;
+        }
+        for (int i = at + 2; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == 'm') {
+                return i + 1;
+            }
+            if ((c < '0' || c > '9') && c != ';') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public TextStyle getStyle() {
+        return style;
+    }
+
+    /**
+     * Writes a message for an ANSI terminal: the line's style is switched on at the start, every
+     * reset inside it goes back to that style, and the terminal is left plain at the end.
+     *
+     * @param out Where to write it.
+     * @param text The message.
+     * @param base The style of the line as a whole.
+     */
+    public void appendAnsi(StringBuilder out, String text, TextStyle base) {
+        reset(text, base);
+        TextStyle shown = TextStyle.PLAIN;
+        while (next()) {
+            if (style != shown) {
+                out.append(style.getAnsi());
+                shown = style;
+            }
+            out.append(text, start, end);
+        }
+        if (shown != TextStyle.PLAIN) {
+            out.append(Colors.RESET);
+        }
+    }
+
+    /**
+     * Writes a message with all of its escape codes taken out, for outputs that can't show color.
+     *
+     * @param out Where to write it.
+     * @param text The message.
+     */
+    public void appendPlain(StringBuilder out, String text) {
+        reset(text, TextStyle.PLAIN);
+        while (next()) {
+            out.append(text, start, end);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes every finished game's GameTrace to compressed, append-only segment files, for TelemetryAnalyzer
+ * to go through later.<p>
+ * Records are gathered into blocks of about BLOCK_RECORDS, always whole games, and each block is stored
+ * column by column: every record's mode, then every turn, every event, every gold change, every gold total,
+ * every item and every treasure. Numbers are variable-length (small ones take a byte), and a column holds
+ * much the same value over and over, so deflating the block squeezes it down to a byte or two per record.<p>
+ * A block on disk is a header (magic "THTB", record count, raw and compressed lengths, a CRC32, and the
+ * length of each column) followed by the compressed bytes. The CRC covers the rest of the header as well as
+ * the compressed bytes, so a reader can trust every length in a block that checks out. Blocks are only ever
+ * appended, and a segment is closed once it passes SEGMENT_BYTES; opening the directory again starts a new
+ * segment rather than writing after a block that a crash might have cut short.<p>
+ * Any number of sessions can append at once. Adding a game to the block is the only part done under the
+ * lock; a full block is compressed and written by whichever thread filled it while others carry on.
+ */
+public class Telemetry implements Closeable {
+    // constants
+    static final int MAGIC = 0x54485442; // "THTB"
+    static final int COLUMNS = 7;
+    static final int HEADER = 4 * (5 + COLUMNS);
+    static final int BLOCK_RECORDS = 1 << 16;
+    static final int MAX_BLOCK_BYTES = 64 << 20; // no real block comes anywhere near this
+    static final String PREFIX = "telemetry-";
+    static final String SUFFIX = ".seg";
+    private static final long SEGMENT_BYTES = 64L << 20;
+    private static final int MODE = 0;
+    private static final int TURN = 1;
+    private static final int EVENT = 2;
+    private static final int GOLD_DELTA = 3;
+    private static final int GOLD = 4;
+    private static final int ITEM = 5;
+    private static final int TREASURE = 6;
+
+    // instance variables
+    private final Path directory;
+    private final Object writeLock;
+    private final Deflater deflater;
+    private Block block;
+    private int segment;
+    private FileChannel channel;
+    private long segmentBytes;
+    private byte[] raw;
+    private byte[] compressed;
+    private long records;
+    private long bytesWritten;
+
+    private Telemetry(Path directory, int segment) {
+        this.directory = directory;
+        writeLock = new Object();
+        deflater = new Deflater(Deflater.BEST_SPEED);
+        block = new Block();
+        this.segment = segment;
+        raw = new byte[0];
+        compressed = new byte[0];
+    }
+
+    /**
+     * Opens a telemetry directory for writing, making it if need be. New games go in a new segment after
+     * any that are already there.
+     */
+    public static Telemetry open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = segments(directory);
+        int last = segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1));
+        return new Telemetry(directory, last);
+    }
+
+    /**
+     * @return Every segment in the directory, oldest first.
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+        // the numbers are zero-padded, so name order is segment order
+        segments.sort(null);
+        return segments;
+    }
+
+    /**
+     * Adds a finished game. If that fills the block, the block is written out before this returns.
+     *
+     * @throws UncheckedIOException If a full block couldn't be written.
+     */
+    public void append(GameTrace trace) {
+        Block full = null;
+        synchronized (this) {
+            block.add(trace);
+            if (block.records >= BLOCK_RECORDS) {
+                full = block;
+                block = new Block();
+            }
+        }
+        if (full != null) {
+            write(full);
+        }
+    }
+
+    /**
+     * @return How many records have been written to disk so far.
+     */
+    public long getRecords() {
+        synchronized (writeLock) {
+            return records;
+        }
+    }
+
+    /**
+     * @return How many bytes have been written to disk so far.
+     */
+    public long getBytesWritten() {
+        synchronized (writeLock) {
+            return bytesWritten;
+        }
+    }
+
+    /**
+     * Writes out whatever games are waiting, and closes the current segment.
+     */
+    @Override
+    public void close() throws IOException {
+        Block last;
+        synchronized (this) {
+            last = block;
+            block = new Block();
+        }
+        try {
+            if (last.records > 0) {
+                write(last);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        synchronized (writeLock) {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+                channel = null;
+            }
+            deflater.end();
+        }
+    }
+
+    static int segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Compresses a block and appends it to the current segment, starting a new segment first if this one is full.
+     */
+    private void write(Block full) {
+        synchronized (writeLock) {
+            try {
+                int rawLength = 0;
+                for (Column column : full.columns) {
+                    rawLength += column.size;
+                }
+                if (raw.length < rawLength) {
+                    raw = new byte[rawLength];
+                    compressed = new byte[rawLength + rawLength / 100 + 64];
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                header.position(20);
+                int at = 0;
+                for (Column column : full.columns) {
+                    System.arraycopy(column.bytes, 0, raw, at, column.size);
+                    at += column.size;
+                    header.putInt(column.size);
+                }
+                deflater.reset();
+                deflater.setInput(raw, 0, rawLength);
+                deflater.finish();
+                int compressedLength = 0;
+                while (!deflater.finished()) {
+                    if (compressedLength == compressed.length) {
+                        compressed = Arrays.copyOf(compressed, 2 * compressed.length);
+                    }
+                    compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+                }
+                header.putInt(0, MAGIC);
+                header.putInt(4, full.records);
+                header.putInt(8, rawLength);
+                header.putInt(12, compressedLength);
+                header.putInt(16, checksum(header, compressed, compressedLength));
+                header.rewind();
+
+                if (channel == null || segmentBytes >= SEGMENT_BYTES) {
+                    nextSegment();
+                }
+                ByteBuffer body = ByteBuffer.wrap(compressed, 0, compressedLength);
+                while (header.hasRemaining() || body.hasRemaining()) {
+                    channel.write(new ByteBuffer[] {header, body});
+                }
+                segmentBytes += HEADER + compressedLength;
+                bytesWritten += HEADER + compressedLength;
+                records += full.records;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Works out a block's CRC, which covers its header (all but the magic and the CRC itself) and its compressed bytes.
+     *
+     * @param header The block's header, with everything but the CRC filled in.
+     */
+    static int checksum(ByteBuffer header, byte[] compressed, int compressedLength) {
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), 4, 12);
+        crc.update(header.array(), 20, HEADER - 20);
+        crc.update(compressed, 0, compressedLength);
+        return (int) crc.getValue();
+    }
+
+    private void nextSegment() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+        }
+        segment++;
+        Path file = directory.resolve(String.format("%s%08d%s", PREFIX, segment, SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentBytes = 0;
+    }
+
+    /**
+     * The games waiting to be written, already encoded column by column.
+     */
+    private static final class Block {
+        private final Column[] columns;
+        private int records;
+
+        Block() {
+            columns = new Column[COLUMNS];
+            for (int i = 0; i < COLUMNS; i++) {
+                columns[i] = new Column();
+            }
+        }
+
+        void add(GameTrace trace) {
+            int mode = trace.getMode();
+            for (int i = 0; i < trace.getSize(); i++) {
+                columns[MODE].put(mode);
+                columns[TURN].putVarint(trace.getTurn(i));
+                columns[EVENT].put(trace.getEvent(i));
+                columns[GOLD_DELTA].putVarint(zigZag(trace.getGoldDelta(i)));
+                columns[GOLD].putVarint(zigZag(trace.getGold(i)));
+                columns[ITEM].put(trace.getItem(i));
+                columns[TREASURE].put(trace.getTreasure(i));
+            }
+            records += trace.getSize();
+        }
+
+        /**
+         * Folds negative numbers in with the positive ones, so -1 is 1 and 1 is 2 and both fit in a byte.
+         */
+        private static int zigZag(int value) {
+            return (value << 1) ^ (value >> 31);
+        }
+    }
+
+    /**
+     * One column of a block: a growable byte array.
+     */
+    private static final class Column {
+        private byte[] bytes = new byte[BLOCK_RECORDS];
+        private int size;
+
+        void put(int value) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * size);
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        /**
+         * Seven bits at a time, low bits first, with the top bit set on every byte but the last.
+         */
+        void putVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                put((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            put(value);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a Telemetry directory back and works out its FunnelStats, however big it has grown.<p>
+ * Segments are read on separate threads, one block at a time: a block is inflated into a buffer that is
+ * reused for the next one, its records are fed straight to the thread's FunnelStats without ever being
+ * turned into objects, and then it is forgotten. So memory stays at a block or two per thread however
+ * many billions of records there are. Every block holds whole games, so no game is split between threads.<p>
+ * A block whose lengths can't be right, whose CRC doesn't match, or that was cut short by a crash, ends its
+ * segment; the blocks before it are still counted. Lengths are checked before anything is allocated or read,
+ * and the CRC covers the header too, so a damaged file can't make the analyzer throw or run out of memory.
+ * Run it with: java TelemetryAnalyzer [telemetry directory] [threads]
+ */
+public class TelemetryAnalyzer {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "telemetry");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+        FunnelStats stats = analyze(Telemetry.segments(directory), threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        stats.printReport(System.out);
+        System.out.printf("(%.1f s, %.0f records/sec)%n", seconds, stats.getRecords() / seconds);
+    }
+
+    /**
+     * Reads some segments, several at once.
+     *
+     * @param segments The segment files.
+     * @param threads How many to read at once.
+     * @return The stats for every game in them.
+     */
+    public static FunnelStats analyze(List<Path> segments, int threads) throws IOException, InterruptedException {
+        List<Future<FunnelStats>> results = new ArrayList<>();
+        try (ExecutorService readers = Executors.newFixedThreadPool(threads)) {
+            for (Path segment : segments) {
+                results.add(readers.submit(() -> analyze(segment)));
+            }
+        }
+        FunnelStats total = new FunnelStats();
+        for (Future<FunnelStats> result : results) {
+            try {
+                total.merge(result.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Reads one segment, block by block.
+     */
+    public static FunnelStats analyze(Path segment) throws IOException {
+        FunnelStats stats = new FunnelStats();
+        ByteBuffer header = ByteBuffer.allocate(Telemetry.HEADER);
+        byte[] compressed = new byte[0];
+        byte[] raw = new byte[0];
+        int[] offsets = new int[Telemetry.COLUMNS];
+        Inflater inflater = new Inflater();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            while (true) {
+                header.clear();
+                if (!readFully(channel, header) || header.getInt(0) != Telemetry.MAGIC) {
+                    break;
+                }
+                int records = header.getInt(4);
+                int rawLength = header.getInt(8);
+                int compressedLength = header.getInt(12);
+                int crc = header.getInt(16);
+                if (!plausible(header, records, rawLength, compressedLength)) {
+                    break;
+                }
+                if (compressed.length < compressedLength) {
+                    compressed = new byte[compressedLength];
+                }
+                if (raw.length < rawLength) {
+                    raw = new byte[rawLength];
+                }
+                if (!readFully(channel, ByteBuffer.wrap(compressed, 0, compressedLength))) {
+                    break;
+                }
+                if (Telemetry.checksum(header, compressed, compressedLength) != crc) {
+                    break;
+                }
+                inflater.reset();
+                inflater.setInput(compressed, 0, compressedLength);
+                try {
+                    if (inflater.inflate(raw, 0, rawLength) != rawLength) {
+                        break;
+                    }
+                } catch (DataFormatException e) {
+                    break;
+                }
+                int at = 0;
+                for (int i = 0; i < Telemetry.COLUMNS; i++) {
+                    offsets[i] = at;
+                    at += header.getInt(20 + 4 * i);
+                }
+                readBlock(raw, offsets, records, stats);
+            }
+        } finally {
+            inflater.end();
+        }
+        return stats;
+    }
+
+    /**
+     * Checks a block header's lengths against each other before they're trusted with allocating or reading anything.
+     * Every record takes at least one byte in every column, and at most five in the variable-length ones.
+     */
+    private static boolean plausible(ByteBuffer header, int records, int rawLength, int compressedLength) {
+        if (records < 0 || rawLength < 0 || rawLength > Telemetry.MAX_BLOCK_BYTES
+                || compressedLength < 0 || compressedLength > Telemetry.MAX_BLOCK_BYTES) {
+            return false;
+        }
+        long total = 0;
+        for (int i = 0; i < Telemetry.COLUMNS; i++) {
+            int length = header.getInt(20 + 4 * i);
+            if (length < records || length > 5L * records) {
+                return false;
+            }
+            total += length;
+        }
+        return total == rawLength;
+    }
+
+    /**
+     * Walks all the columns of a block side by side, feeding each record to the stats.
+     *
+     * @param raw The inflated block.
+     * @param at Where each column starts; moved along as it is read.
+     */
+    private static void readBlock(byte[] raw, int[] at, int records, FunnelStats stats) {
+        for (int i = 0; i < records; i++) {
+            int mode = raw[at[0]++];
+            int turn = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = raw[at[1]++];
+                turn |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            int event = raw[at[2]++];
+            // the gold change isn't needed for the funnel, so just skip over it
+            while (raw[at[3]++] < 0) {
+                // keep going to the last byte of the number
+            }
+            int gold = 0;
+            shift = 0;
+            do {
+                b = raw[at[4]++];
+                gold |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            gold = (gold >>> 1) ^ -(gold & 1);
+            int item = raw[at[5]++];
+            at[6]++; // nor the treasure
+            stats.add(mode, turn, event, gold, item);
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,30 +1,54 @@
 /**
  * The Terrain class is designed to represent the zones between the towns in the Treasure Hunter game.
+ * A terrain never changes, so there is just one of each kind, shared by every town in every game (see of()).
  * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
  */
 
 public class Terrain {
+    // constants
+    private static final Terrain[] SHARED = new Terrain[TerrainType.VALUES.length];
+    static {
+        for (TerrainType type : TerrainType.VALUES) {
+            SHARED[type.ordinal()] = new Terrain(type);
+        }
+    }
+
     // instance variables
-    private String terrainName;
-    private String neededItem;
+    private final TerrainType type;
+    private final Item neededItem;
 
     /**
      * Sets the class member variables
      *
-     * @param name The name of the zone.
-     * @param item The item needed in order to cross the zone.
+     * @param type The kind of zone, which also decides the item needed in order to cross it.
      */
-    public Terrain(String name, String item) {
-        terrainName = Colors.CYAN + name + Colors.RESET;
-        neededItem = item.toLowerCase();
+    private Terrain(TerrainType type) {
+        this.type = type;
+        neededItem = type.getNeededItem();
+    }
+
+    /**
+     * @param type The kind of zone.
+     * @return The one Terrain of that kind.
+     */
+    public static Terrain of(TerrainType type) {
+        return SHARED[type.ordinal()];
     }
 
     // accessors
+    public TerrainType getType() {
+        return type;
+    }
+
     public String getTerrainName() {
-        return terrainName;
+        return type.getColoredName();
     }
 
     public String getNeededItem() {
+        return neededItem.getName();
+    }
+
+    public Item getItem() {
         return neededItem;
     }
 
@@ -46,6 +70,6 @@ public class Terrain {
      * @return A string representation of the terrain and item to cross it.
      */
     public String infoString() {
-        return "You are surrounded by " + terrainName + " which needs a(n) " + neededItem + " to cross.";
+        return type.getInfoString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+/**
+ * The kinds of terrain that can surround a town, and the item needed to cross each one.<p>
+ * The colored name and every message about the terrain are built once here, so making a Terrain
+ * or showing one doesn't redo any string work.
+ */
+public enum TerrainType {
+    MOUNTAINS("Mountains", Item.ROPE),
+    OCEAN("Ocean", Item.BOAT),
+    PLAINS("Plains", Item.HORSE),
+    DESERT("Desert", Item.WATER),
+    JUNGLE("Jungle", Item.MACHETE),
+    MARSH("Marsh", Item.BOOTS);
+
+    // every terrain in ordinal order, so a random pick is just an array index
+    public static final TerrainType[] VALUES = values();
+
+    // instance variables
+    private final String terrainName;
+    private final String coloredName;
+    private final Item neededItem;
+    private final String infoString;
+    private final String townInfo;
+    private final String crossMessage;
+    private final String crossAndBreakMessage;
+
+    TerrainType(String terrainName, Item neededItem) {
+        this.terrainName = terrainName;
+        this.coloredName = Colors.CYAN + terrainName + Colors.RESET;
+        this.neededItem = neededItem;
+        infoString = "You are surrounded by " + coloredName + " which needs a(n) " + neededItem.getName() + " to cross.";
+        townInfo = "This nice little town is surrounded by " + coloredName + ".";
+        crossMessage = "You used your " + neededItem.getName() + " to cross the " + coloredName + ".";
+        crossAndBreakMessage = crossMessage + neededItem.getBreakMessage();
+    }
+
+    public String getTerrainName() {
+        return terrainName;
+    }
+
+    /**
+     * @return The terrain's name, colored for display.
+     */
+    public String getColoredName() {
+        return coloredName;
+    }
+
+    public Item getNeededItem() {
+        return neededItem;
+    }
+
+    /**
+     * @return What the hunter is told when they explore this terrain.
+     */
+    public String getInfoString() {
+        return infoString;
+    }
+
+    /**
+     * @return The description of a town surrounded by this terrain.
+     */
+    public String getTownInfo() {
+        return townInfo;
+    }
+
+    /**
+     * @return The news after crossing this terrain.
+     */
+    public String getCrossMessage() {
+        return crossMessage;
+    }
+
+    /**
+     * @return The news after crossing this terrain and breaking the item used to do it.
+     */
+    public String getCrossAndBreakMessage() {
+        return crossAndBreakMessage;
+    }
+}
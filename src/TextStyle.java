@@ -0,0 +1,61 @@
+/**
+ * The styles the game's text can be shown in. Each one knows its ANSI escape code for terminals
+ * and its RGB color for the Swing window, so no output has to translate between the two itself.
+ */
+public enum TextStyle {
+    PLAIN(Colors.RESET, 0x000000),
+    RED(Colors.RED, 0xFF0000),
+    GREEN(Colors.GREEN, 0x00A000),
+    YELLOW(Colors.YELLOW, 0xC8A000),
+    BLUE(Colors.BLUE, 0x0000FF),
+    PURPLE(Colors.PURPLE, 0x800080),
+    CYAN(Colors.CYAN, 0x00A0A0),
+    WHITE(Colors.WHITE, 0xA0A0A0),
+    ORANGE(Colors.ORANGE, 0xF05014);
+
+    // every style in ordinal order, so lookups don't copy values() each time
+    public static final TextStyle[] VALUES = values();
+
+    // instance variables
+    private final String ansi;
+    private final int rgb;
+
+    TextStyle(String ansi, int rgb) {
+        this.ansi = ansi;
+        this.rgb = rgb;
+    }
+
+    /**
+     * @return The escape code that switches a terminal to this style.
+     */
+    public String getAnsi() {
+        return ansi;
+    }
+
+    /**
+     * @return The color for windowed outputs, as 0xRRGGBB.
+     */
+    public int getRgb() {
+        return rgb;
+    }
+
+    /**
+     * Finds the style an escape code in a message stands for.
+     *
+     * @param text The text holding the code.
+     * @param start Where the code starts.
+     * @param end Where it ends (just past the 'm').
+     * @return The style, PLAIN for a reset, or null if it isn't one of the codes in Colors.
+     */
+    public static TextStyle forAnsi(String text, int start, int end) {
+        for (TextStyle style : VALUES) {
+            if (style.ansi.length() == end - start && text.startsWith(style.ansi, start)) {
+                return style;
+            }
+        }
+        if (Colors.BLACK.length() == end - start && text.startsWith(Colors.BLACK, start)) {
+            return PLAIN;
+        }
+        return null;
+    }
+}
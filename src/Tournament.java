@@ -0,0 +1,289 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Plays several bots against each other on the same seeded games, to compare strategies and to check that
+ * a rules change hasn't thrown the game's balance off.<p>
+ * Every bot plays game i of a mode with the same seed, so they all start from the same town and face
+ * the same dice until their moves take them different ways. Bots plug in as Strategy classes and drive the
+ * game through the same menu a player does.<p>
+ * Each bot's games are split up fork-join style into small batches on the common pool, so idle workers
+ * steal batches from busy ones and a slow bot never holds up the others. The games are always split and
+ * joined the same way, so the same seed gives the same report on any number of cores.<p>
+ * A bot is "greedy", "random", "optimal:directory" (the policy-*.tbl files PolicySolver saves there)
+ * or the name of any Strategy class with a no-argument constructor. With --telemetry every game's town and
+ * shop outcomes are written to a Telemetry directory as well, for TelemetryAnalyzer.
+ * Run it with: java Tournament [--rules file] [--telemetry directory] [games per mode] [turn limit] [seed] [modes] [bot ...]
+ */
+public class Tournament {
+    // constants
+    private static final int GAMES_PER_TASK = 256;
+    private static final GameOutput NO_OUTPUT = new NullOutput();
+
+    // instance variables
+    private final List<String> names;
+    private final List<Function<String, Strategy>> bots; // makes a new bot for a game in the given mode
+    private final int maxTurns;
+    private Telemetry telemetry;
+
+    /**
+     * @param maxTurns How many moves each bot gets per game before giving up.
+     */
+    public Tournament(int maxTurns) {
+        names = new ArrayList<>();
+        bots = new ArrayList<>();
+        this.maxTurns = maxTurns;
+        telemetry = null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> rest = new ArrayList<>();
+        Telemetry telemetry = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--rules") && i + 1 < args.length) {
+                RuleBook.reload(Path.of(args[++i]));
+            } else if (args[i].equals("--telemetry") && i + 1 < args.length) {
+                telemetry = Telemetry.open(Path.of(args[++i]));
+            } else {
+                rest.add(args[i]);
+            }
+        }
+        int games = rest.size() > 0 ? Integer.parseInt(rest.get(0)) : 20_000;
+        int maxTurns = rest.size() > 1 ? Integer.parseInt(rest.get(1)) : 200;
+        long seed = rest.size() > 2 ? Long.parseLong(rest.get(2)) : System.nanoTime();
+        String modes = rest.size() > 3 ? rest.get(3) : RuleBook.MODES;
+        Tournament tournament = new Tournament(maxTurns);
+        tournament.setTelemetry(telemetry);
+        for (String spec : rest.size() > 4 ? rest.subList(4, rest.size()) : List.of("greedy", "random")) {
+            tournament.addBot(spec);
+        }
+
+        System.out.println("Playing " + games + " games per mode per bot on " + ForkJoinPool.commonPool().getParallelism()
+                + " threads, turn limit " + maxTurns + ", seed " + seed);
+        for (int i = 0; i < modes.length(); i++) {
+            String mode = modes.substring(i, i + 1);
+            long start = System.nanoTime();
+            TournamentStats[] results = tournament.run(mode, seedsFor(seed, i, 0, games));
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Mode %s (%.0f games/sec):%n", mode, results.length * games / seconds);
+            for (int bot = 0; bot < results.length; bot++) {
+                results[bot].printRow(System.out, tournament.names.get(bot));
+            }
+        }
+        if (telemetry != null) {
+            telemetry.close();
+            System.out.printf("Telemetry: %d records in %d bytes%n", telemetry.getRecords(), telemetry.getBytesWritten());
+        }
+    }
+
+    /**
+     * @param telemetry Where every game's outcomes are written, or null for nowhere.
+     */
+    public void setTelemetry(Telemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /**
+     * Adds a bot by name, the same way the command line does.
+     *
+     * @param spec "greedy", "random", "optimal:directory" or a Strategy class name.
+     */
+    public void addBot(String spec) {
+        addBot(nameOf(spec), botFor(spec));
+    }
+
+    /**
+     * @param spec "greedy", "random", "optimal:directory" or a Strategy class name.
+     * @return What the bot is called in the report.
+     */
+    public static String nameOf(String spec) {
+        if (spec.startsWith("optimal:")) {
+            return "optimal";
+        }
+        return spec.substring(spec.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * @param spec "greedy", "random", "optimal:directory" or a Strategy class name.
+     * @return Something that makes a new bot for a game, given the game's mode answer.
+     */
+    public static Function<String, Strategy> botFor(String spec) {
+        if (spec.equals("greedy")) {
+            return mode -> new GreedyStrategy();
+        } else if (spec.equals("random")) {
+            return mode -> new RandomStrategy();
+        } else if (spec.startsWith("optimal:")) {
+            Path directory = Path.of(spec.substring("optimal:".length()));
+            PolicyTable[] tables = new PolicyTable[RuleBook.MODES.length()];
+            return mode -> new OptimalStrategy(tableFor(tables, directory, mode));
+        }
+        Class<? extends Strategy> type;
+        try {
+            type = Class.forName(spec).asSubclass(Strategy.class);
+            type.getConstructor();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Not a bot: " + spec, e);
+        }
+        return mode -> {
+            try {
+                return type.getConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Can't make a " + spec, e);
+            }
+        };
+    }
+
+    /**
+     * @param name What to call the bot in the report.
+     * @param bot Makes a new Strategy for each game, given the game's mode answer.
+     */
+    public void addBot(String name, Function<String, Strategy> bot) {
+        names.add(name);
+        bots.add(bot);
+    }
+
+    /**
+     * Plays every bot through the same games in one mode, all at once on the common fork-join pool.
+     *
+     * @param mode The mode answer ("e", "n", "h" or "s").
+     * @param games How many games each bot plays.
+     * @param random Where the games' seeds come from.
+     * @return Each bot's results, in the order the bots were added.
+     */
+    public TournamentStats[] run(String mode, int games, SplittableRandom random) {
+        long[] seeds = new long[games];
+        for (int i = 0; i < games; i++) {
+            seeds[i] = random.nextLong();
+        }
+        return run(mode, seeds);
+    }
+
+    /**
+     * Plays every bot through the given games in one mode, all at once on the common fork-join pool.
+     *
+     * @param mode The mode answer ("e", "n", "h" or "s").
+     * @param seeds One seed per game.
+     * @return Each bot's results, in the order the bots were added.
+     */
+    public TournamentStats[] run(String mode, long[] seeds) {
+        List<Batch> batches = new ArrayList<>();
+        for (Function<String, Strategy> bot : bots) {
+            batches.add(new Batch(bot, mode, seeds, 0, seeds.length));
+        }
+        TournamentStats[] results = new TournamentStats[batches.size()];
+        ForkJoinPool.commonPool().invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                ForkJoinTask.invokeAll(batches);
+                return null;
+            }
+        });
+        for (int i = 0; i < results.length; i++) {
+            results[i] = batches.get(i).join();
+        }
+        return results;
+    }
+
+    /**
+     * Plays a single game from start to finish and adds it to the stats.
+     *
+     * @param bot Makes the bot that plays it.
+     * @param mode The mode answer.
+     * @param seed The game's seed.
+     * @param stats Where to record the result.
+     */
+    public void playOne(Function<String, Strategy> bot, String mode, long seed, TournamentStats stats) {
+        StrategyInput input = new StrategyInput(bot.apply(mode), "bot", mode, maxTurns);
+        GameSession session = new GameSession(input, NO_OUTPUT, seed);
+        input.setSession(session);
+        session.setTelemetry(telemetry);
+        new TreasureHunter(session).play();
+        stats.record(session, input);
+    }
+
+    /**
+     * Works out some of the game seeds for one mode of a run, without working out the others, so a run can
+     * be split up any way at all and still play exactly the same games.
+     *
+     * @param seed The run's seed.
+     * @param position Where the mode comes in the run's list of modes, from 0.
+     * @param from The first game wanted.
+     * @param count How many games.
+     * @return Their seeds.
+     */
+    public static long[] seedsFor(long seed, int position, int from, int count) {
+        SplittableRandom random = new SplittableRandom(seed);
+        SplittableRandom modeRandom = random.split();
+        for (int i = 0; i < position; i++) {
+            modeRandom = random.split();
+        }
+        for (int i = 0; i < from; i++) {
+            modeRandom.nextLong();
+        }
+        long[] seeds = new long[count];
+        for (int i = 0; i < count; i++) {
+            seeds[i] = modeRandom.nextLong();
+        }
+        return seeds;
+    }
+
+    /**
+     * Loads a mode's policy table the first time a game in that mode needs it.
+     */
+    private static PolicyTable tableFor(PolicyTable[] tables, Path directory, String mode) {
+        int index = RuleBook.MODES.indexOf(mode);
+        synchronized (tables) {
+            if (tables[index] == null) {
+                try {
+                    tables[index] = PolicyTable.load(directory.resolve("policy-" + mode + ".tbl"));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return tables[index];
+        }
+    }
+
+    /**
+     * Splits a range of one bot's games in half until it is small enough to play straight through.
+     */
+    private class Batch extends RecursiveTask<TournamentStats> {
+        private final Function<String, Strategy> bot;
+        private final String mode;
+        private final long[] seeds;
+        private final int from;
+        private final int to;
+
+        Batch(Function<String, Strategy> bot, String mode, long[] seeds, int from, int to) {
+            this.bot = bot;
+            this.mode = mode;
+            this.seeds = seeds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TournamentStats compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                TournamentStats stats = new TournamentStats(maxTurns);
+                for (int i = from; i < to; i++) {
+                    playOne(bot, mode, seeds[i], stats);
+                }
+                return stats;
+            }
+            int middle = (from + to) >>> 1;
+            Batch left = new Batch(bot, mode, seeds, from, middle);
+            left.fork();
+            TournamentStats right = new Batch(bot, mode, seeds, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Tallies one bot's games in one mode of a Tournament, with confidence intervals for the numbers it reports.<p>
+ * Everything is whole numbers, so stats merge exactly in any order: the gold per move is kept in millionths
+ * of a gold, and its sum of squares in 128 bits so it can't overflow. The same games always give the same
+ * report however they were split up, between threads or between ShardCoordinator's worker processes.
+ */
+public class TournamentStats {
+    // constants
+    static final double Z = 1.96; // 95% confidence
+    private static final double MICROS = 1e6;
+
+    // instance variables
+    private final int maxTurns;
+    private long games;
+    private long wins;
+    private long gameOvers;
+    private final long[] turns; // how many moves each game lasted
+    private long goldPerMove; // in millionths of a gold, summed over games that made a move
+    private long squaresHigh; // the sum of the squares of the same, as one 128-bit number
+    private long squaresLow;
+    private long gamesWithMoves;
+
+    /**
+     * @param maxTurns The turn limit the games were played with.
+     */
+    public TournamentStats(int maxTurns) {
+        this.maxTurns = maxTurns;
+        turns = new long[maxTurns + 1];
+    }
+
+    /**
+     * Adds one finished game.
+     *
+     * @param session The session after play() has returned.
+     * @param input The StrategyInput that played it.
+     */
+    public void record(GameSession session, StrategyInput input) {
+        Hunter hunter = session.getHunter();
+        int moves = input.getMoves();
+        games++;
+        if (hunter.checkWin()) {
+            wins++;
+        } else if (hunter.getGold() < 0) {
+            gameOvers++;
+        }
+        turns[Math.min(moves, maxTurns)]++;
+        if (moves > 0) {
+            // gold gained per move, from what the hunter had when the bot took over
+            long efficiency = Math.round(MICROS * (hunter.getGold() - input.getGoldAtTurn(0)) / moves);
+            goldPerMove += efficiency;
+            addSquare(Math.multiplyHigh(efficiency, efficiency), efficiency * efficiency);
+            gamesWithMoves++;
+        }
+    }
+
+    /**
+     * Adds all of another TournamentStats' games into this one.
+     *
+     * @param other Stats for the same bot, mode and turn limit.
+     * @return this, to make joining results easy.
+     */
+    public TournamentStats merge(TournamentStats other) {
+        games += other.games;
+        wins += other.wins;
+        gameOvers += other.gameOvers;
+        for (int i = 0; i < turns.length; i++) {
+            turns[i] += other.turns[i];
+        }
+        goldPerMove += other.goldPerMove;
+        addSquare(other.squaresHigh, other.squaresLow);
+        gamesWithMoves += other.gamesWithMoves;
+        return this;
+    }
+
+    /**
+     * Writes every count, for read() to put back together in another process.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(maxTurns);
+        out.writeLong(games);
+        out.writeLong(wins);
+        out.writeLong(gameOvers);
+        for (long count : turns) {
+            out.writeLong(count);
+        }
+        out.writeLong(goldPerMove);
+        out.writeLong(squaresHigh);
+        out.writeLong(squaresLow);
+        out.writeLong(gamesWithMoves);
+    }
+
+    /**
+     * Reads stats written by write().
+     */
+    public static TournamentStats read(DataInput in) throws IOException {
+        int maxTurns = in.readInt();
+        if (maxTurns < 0) {
+            throw new IOException("Corrupt tournament stats: turn limit " + maxTurns);
+        }
+        TournamentStats stats = new TournamentStats(maxTurns);
+        stats.games = in.readLong();
+        stats.wins = in.readLong();
+        stats.gameOvers = in.readLong();
+        for (int i = 0; i < stats.turns.length; i++) {
+            stats.turns[i] = in.readLong();
+        }
+        stats.goldPerMove = in.readLong();
+        stats.squaresHigh = in.readLong();
+        stats.squaresLow = in.readLong();
+        stats.gamesWithMoves = in.readLong();
+        return stats;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public long getGameOvers() {
+        return gameOvers;
+    }
+
+    /**
+     * @return The fraction of games that ended in a win.
+     */
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    /**
+     * The Wilson score interval, which stays sensible for win rates near 0% or 100% and for few games.
+     *
+     * @return The low and high ends of the 95% interval for the win rate.
+     */
+    public double[] getWinRateInterval() {
+        if (games == 0) {
+            return new double[] {0, 1};
+        }
+        double p = getWinRate();
+        double zz = Z * Z / games;
+        double center = (p + zz / 2) / (1 + zz);
+        double half = Z * Math.sqrt(p * (1 - p) / games + zz / (4 * games)) / (1 + zz);
+        return new double[] {Math.max(0, center - half), Math.min(1, center + half)};
+    }
+
+    /**
+     * @return How many moves the middle game lasted.
+     */
+    public int getMedianTurns() {
+        return turnsAtRank((games + 1) / 2);
+    }
+
+    /**
+     * Takes the interval from the order statistics either side of the median, so it needs no assumptions
+     * about how game lengths are spread out.
+     *
+     * @return The low and high ends of the 95% interval for the median.
+     */
+    public int[] getMedianTurnsInterval() {
+        double spread = Z * Math.sqrt(games) / 2;
+        long low = (long) Math.floor(games / 2.0 - spread);
+        long high = (long) Math.ceil(games / 2.0 + spread) + 1;
+        return new int[] {turnsAtRank(Math.max(1, low)), turnsAtRank(Math.min(games, high))};
+    }
+
+    /**
+     * @return The average gold gained (or lost, if negative) per move.
+     */
+    public double getGoldPerMove() {
+        return gamesWithMoves == 0 ? 0 : goldPerMove / MICROS / gamesWithMoves;
+    }
+
+    /**
+     * @return Half the width of the 95% interval for the gold per move.
+     */
+    public double getGoldPerMoveError() {
+        if (gamesWithMoves < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double mean = getGoldPerMove();
+        double squares = (squaresHigh * 0x1p64 + ((squaresLow >>> 1) * 2.0 + (squaresLow & 1))) / (MICROS * MICROS);
+        double variance = Math.max(0, (squares - gamesWithMoves * mean * mean) / (gamesWithMoves - 1));
+        return Z * Math.sqrt(variance / gamesWithMoves);
+    }
+
+    /**
+     * Prints one line of the tournament table for this bot.
+     *
+     * @param out Where to print it.
+     * @param bot The bot's name.
+     */
+    public void printRow(PrintStream out, String bot) {
+        double[] won = getWinRateInterval();
+        int[] median = getMedianTurnsInterval();
+        out.printf("  %-14s %7.2f%% (%6.2f-%6.2f)  %5.2f%% game over  %4d turns (%d-%d)  %+7.3f net gold/move (+/- %.3f)%n",
+                bot, 100 * getWinRate(), 100 * won[0], 100 * won[1], games == 0 ? 0 : 100.0 * gameOvers / games,
+                getMedianTurns(), median[0], median[1], getGoldPerMove(), getGoldPerMoveError());
+    }
+
+    /**
+     * Adds to the 128-bit sum of squares, carrying out of the low half by hand.
+     */
+    private void addSquare(long high, long low) {
+        long sum = squaresLow + low;
+        squaresHigh += high + (Long.compareUnsigned(sum, squaresLow) < 0 ? 1 : 0);
+        squaresLow = sum;
+    }
+
+    /**
+     * @param rank A rank from 1 (the shortest game) up to games.
+     * @return How many moves the game at that rank lasted.
+     */
+    private int turnsAtRank(long rank) {
+        long seen = 0;
+        for (int i = 0; i < turns.length; i++) {
+            seen += turns[i];
+            if (seen >= rank && seen > 0) {
+                return i;
+            }
+        }
+        return maxTurns;
+    }
+}
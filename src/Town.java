@@ -1,4 +1,4 @@
-import java.awt.*;
+import java.util.SplittableRandom;
 
 /**
  * The Town Class is where it all happens.
@@ -7,6 +7,26 @@ import java.awt.*;
  */
 
 public class Town {
+    // constants
+    // a town's terrain and treasure come from a single roll: terrain is the remainder, treasure the quotient
+    private static final int TERRAINS = TerrainType.VALUES.length;
+    private static final int TOWN_ROLLS = TERRAINS * Treasure.VALUES.length;
+    // every brawl message for up to this much gold is built once up front, indexed by the gold
+    // that changed hands, so looking for trouble under the standard rules doesn't build any strings
+    private static final int PREBUILT_BRAWL_GOLD = 10;
+    private static final String TROUBLE = Colors.RED + "You want trouble, stranger!  You got it!\nOof! Umph! Ow!\n";
+    private static final String[] BRAWL_WON = brawlMessages("Okay, stranger! You proved yer mettle. Here, take my gold.", true);
+    private static final String[] BRAWL_WON_WITH_SWORD = brawlMessages("Woah is that a sword?! Ok bud, you win, I ain't want no trouble with you.", true);
+    private static final String[] BRAWL_LOST = brawlMessages("That'll teach you to go lookin' fer trouble in MY town! Now pay up!", false);
+    private static final String[] FOUND_TREASURE = new String[Treasure.VALUES.length];
+    private static final String[] FOUND_TREASURE_NEWS = new String[Treasure.VALUES.length];
+    static {
+        for (Treasure treasure : Treasure.VALUES) {
+            FOUND_TREASURE[treasure.ordinal()] = "Ah ha! You found a " + treasure.getName() + "!";
+            FOUND_TREASURE_NEWS[treasure.ordinal()] = "You found a " + treasure.getName() + "!";
+        }
+    }
+
     // instance variables
     private Hunter hunter;
     private Shop shop;
@@ -15,31 +35,128 @@ public class Town {
     private boolean toughTown;
     private boolean hasBeenDug;
     private  boolean treasureHunted;
-    private String townTreasure;
+    private Treasure townTreasure;
     private String lastBrawlWon;
+    private GameSession session;
+    private GameOutput window;
+    private SplittableRandom random;
+    private GameRules rules;
+    private Hunter welcomed;
+    private String welcomeTough;
+    private String welcomeMild;
+
     /**
      * The Town Constructor takes in a shop and the surrounding terrain, but leaves the hunter as null until one arrives.
      *
      * @param shop The town's shoppe.
      * @param toughness The surrounding terrain.
+     * @param session The game session the town belongs to.
      */
-    public Town(Shop shop, double toughness) {
+    public Town(Shop shop, double toughness, GameSession session) {
         this.shop = shop;
-        this.terrain = getNewTerrain();
-        String treasureOfTheTown = "";
+        this.session = session;
+        this.window = session.getOutput();
+        this.random = session.getRandom();
+        this.rules = session.getRules();
+        reset(toughness);
+    }
+
+    /**
+     * Rebuilds a town exactly as it was, for loading a saved game.
+     *
+     * @param shop The town's shoppe.
+     * @param terrain The surrounding terrain.
+     * @param toughTown Whether it's a tough town.
+     * @param townTreasure The treasure still hidden here, or null if it has been hunted.
+     * @param hasBeenDug Whether the hunter has already dug here.
+     * @param lastBrawlWon "won", "lost", or null if there hasn't been a brawl.
+     * @param session The game session the town belongs to.
+     */
+    public Town(Shop shop, Terrain terrain, boolean toughTown, Treasure townTreasure, boolean hasBeenDug,
+                String lastBrawlWon, GameSession session) {
+        this.shop = shop;
+        this.session = session;
+        this.window = session.getOutput();
+        this.random = session.getRandom();
+        this.rules = session.getRules();
+        this.terrain = terrain;
+        this.toughTown = toughTown;
+        this.townTreasure = townTreasure;
+        this.hasBeenDug = hasBeenDug;
+        this.treasureHunted = townTreasure == null;
+        this.lastBrawlWon = lastBrawlWon;
+        hunter = null;
+        printMessage = "";
+        shop.nextTown();
+    }
+
+    /**
+     * Turns this town into the next one down the road, so moving on doesn't make a new Town (or Shop or Terrain).
+     * The town is rolled exactly as the constructor would roll a new one, so games play out the same either way.
+     * On a World the treasure is the world town's instead (none if it has been hunted already), but the rolls
+     * are still made so the rest of the game is rolled the same way.<p>
+     * The hunter is left as null until one arrives.
+     *
+     * @param toughness The chance that the town is a tough town.
+     */
+    public void reset(double toughness) {
+        int townRoll = random.nextInt(TOWN_ROLLS);
+        this.terrain = getNewTerrain(townRoll % TERRAINS);
         // the hunter gets set using the hunterArrives method, which
         // gets called from a client class
         hunter = null;
         printMessage = "";
         // higher toughness = more likely to be a tough town
-        toughTown = (Math.random() < toughness);
-        assignTreasure();
+        toughTown = (random.nextDouble() < toughness);
+        townTreasure = Treasure.VALUES[townRoll / TERRAINS];
+        hasBeenDug = false;
+        treasureHunted = false;
+        World world = session.getWorld();
+        if (world != null) {
+            townTreasure = session.isWorldTownHunted() ? null : world.getTreasure(session.getWorldTown());
+            treasureHunted = townTreasure == null;
+        }
+        lastBrawlWon = null;
+        shop.nextTown();
     }
 
     public Terrain getTerrain() {
         return terrain;
     }
 
+    public Shop getShop() {
+        return shop;
+    }
+
+    public boolean hasBeenDug() {
+        return hasBeenDug;
+    }
+
+    public boolean isToughTown() {
+        return toughTown;
+    }
+
+    /**
+     * @return The treasure still hidden here, or null once it has been hunted.
+     */
+    public Treasure getTownTreasure() {
+        return townTreasure;
+    }
+
+    /**
+     * @return "won" or "lost" for the last brawl here, or null if there hasn't been one.
+     */
+    public String getLastBrawlWon() {
+        return lastBrawlWon;
+    }
+
+    /**
+     * @return true if nobody has hunted for this town's treasure yet.
+     */
+    public boolean hasTreasureLeft() {
+        return townTreasure != null;
+    }
+
     public String getLatestNews() {
         return printMessage;
     }
@@ -51,11 +168,16 @@ public class Town {
      */
     public void hunterArrives(Hunter hunter) {
         this.hunter = hunter;
-        printMessage = "Welcome to town, " + hunter.getHunterName() + ".";
+        if (hunter != welcomed) {
+            // the same hunter arrives town after town, so only build the greetings once
+            welcomed = hunter;
+            welcomeTough = "Welcome to town, " + hunter.getHunterName() + ".\nIt's pretty rough around here, so watch yourself.";
+            welcomeMild = "Welcome to town, " + hunter.getHunterName() + ".\nWe're just a sleepy little town with mild mannered folk.";
+        }
         if (toughTown) {
-            printMessage += "\nIt's pretty rough around here, so watch yourself.";
+            printMessage = welcomeTough;
         } else {
-            printMessage += "\nWe're just a sleepy little town with mild mannered folk.";
+            printMessage = welcomeMild;
         }
     }
 
@@ -65,14 +187,28 @@ public class Town {
      * @return true if the Hunter was able to leave town.
      */
     public boolean leaveTown() {
+        return leaveTown(terrain);
+    }
+
+    /**
+     * Handles the action of the Hunter leaving the town along a road across the given terrain, on a World.
+     *
+     * @param terrain The terrain the road crosses.
+     * @return true if the Hunter was able to leave town.
+     */
+    public boolean leaveTown(Terrain terrain) {
         boolean canLeaveTown = terrain.canCrossTerrain(hunter);
         if (canLeaveTown) {
-            String item = terrain.getNeededItem();
-            printMessage = "You used your " + item + " to cross the " + terrain.getTerrainName() + ".";
-            if (checkItemBreak()) {
+            Item item = terrain.getItem();
+            boolean broke = checkItemBreak();
+            if (broke) {
                 hunter.removeItemFromKit(item);
-                printMessage += breakItem(item);
+                printMessage = terrain.getType().getCrossAndBreakMessage();
+            } else {
+                printMessage = terrain.getType().getCrossMessage();
             }
+            session.getMetrics().crossed(item, broke);
+            session.getTrace().crossed(item, broke);
             hasBeenDug = false;
             treasureHunted = false;
             return true;
@@ -82,36 +218,40 @@ public class Town {
         return false;
     }
     public void assignTreasure() {
-        String[] treasures = {"crown", "trophy", "gem", "dust"};
-        this.townTreasure = treasures[(int) (Math.random() * treasures.length)];
+        this.townTreasure = Treasure.VALUES[random.nextInt(Treasure.VALUES.length)];
     }
     public void huntForTreasure() {
         if (townTreasure != null) {
-            TreasureHunter.window.addTextToWindow("You begin searching for treasure...", Color.black);
-            TreasureHunter.window.addTextToWindow("Ah ha! You found a " + townTreasure + "!", Color.black);
+            window.addTextToWindow("You begin searching for treasure...", TextStyle.PLAIN);
+            window.addTextToWindow(FOUND_TREASURE[townTreasure.ordinal()], TextStyle.PLAIN);
             hunter.addTreasure(townTreasure);
-            printMessage = "You found a " + townTreasure + "!";
+            session.getMetrics().treasureFound(townTreasure);
+            session.getTrace().treasureFound(townTreasure);
+            printMessage = FOUND_TREASURE_NEWS[townTreasure.ordinal()];
         } else {
             printMessage = "There's nothing left to find in this town.";
         }
         townTreasure = null;
+        if (session.getWorld() != null) {
+            session.worldTownHunted();
+        }
     }
 
     public void digForGold() {
         if (!hasBeenDug) {
-            if (hunter.hasItemInKit("shovel")) {
+            if (hunter.hasItemInKit(Item.SHOVEL)) {
                 hasBeenDug = true;
-                double rand = Math.random();
-                if (rand < .50) {
+                double rand = random.nextDouble();
+                if (rand < rules.getStrikeGoldChance()) {
                     digResult(true);
                 } else {
                     digResult(false);
                 }
             }   else {
-                TreasureHunter.window.addTextToWindow("You don't got no shovel! What're ya gonna do claw yur way to gold?!" , Color.YELLOW);
+                window.addTextToWindow("You don't got no shovel! What're ya gonna do claw yur way to gold?!" , TextStyle.YELLOW);
             }
         }   else {
-            TreasureHunter.window.addTextToWindow("You've dug this place bone dry!!! Go dig elsewhere!!!", Color.red);
+            window.addTextToWindow("You've dug this place bone dry!!! Go dig elsewhere!!!", TextStyle.RED);
         }
     }
 
@@ -132,54 +272,40 @@ public class Town {
     public void lookForTrouble() {
         double noTroubleChance;
         if (toughTown) {
-            noTroubleChance = 0.66;
+            noTroubleChance = rules.getToughTownTrouble();
         } else {
-            noTroubleChance = 0.33;
+            noTroubleChance = rules.getMildTownTrouble();
         }
-        if (Math.random() > noTroubleChance) {
+        if (random.nextDouble() > noTroubleChance) {
             printMessage = "You couldn't find any trouble";
+            session.getMetrics().noTrouble();
+            session.getTrace().noTrouble();
         } else {
-            printMessage = Colors.RED + "You want trouble, stranger!  You got it!\nOof! Umph! Ow!\n";
-            int goldDiff = (int) (Math.random() * 10) + 1;
-            if (TreasureHunter.isEasyMode()) {
-                if (Math.random() + 0.1 > noTroubleChance) {
-                    printMessage += "Okay, stranger! You proved yer mettle. Here, take my gold.";
-                    printMessage += Colors.YELLOW + "\nYou won the brawl and receive " + goldDiff + " gold." + Colors.RED;
-                    hunter.changeGold(goldDiff);
-                    lastBrawlWon = "won";
+            int goldDiff = random.nextInt(rules.getMaxBrawlGold()) + 1;
+            if (random.nextDouble() + rules.getBrawlBonus() > noTroubleChance || hunter.hasItemInKit(Item.SWORD)) {
+                if (hunter.hasItemInKit(Item.SWORD)) {
+                    printMessage = brawlMessage(BRAWL_WON_WITH_SWORD, goldDiff);
                 }
                 else {
-                    printMessage += "That'll teach you to go lookin' fer trouble in MY town! Now pay up!";
-                    printMessage += "\nYou lost the brawl and pay " + goldDiff + " gold.";
-                    hunter.changeGold(-goldDiff);
-                    lastBrawlWon = "lost";
-                }
-            }   else {
-                if (Math.random() > noTroubleChance || hunter.hasItemInKit("sword")) {
-                    if (hunter.hasItemInKit("sword")) {
-                        printMessage += "Woah is that a sword?! Ok bud, you win, I ain't want no trouble with you.";
-                    }
-                    else {
-                        printMessage += "Okay, stranger! You proved yer mettle. Here, take my gold.";
-
-                    }
-                    printMessage += Colors.YELLOW + "\nYou won the brawl and receive " + goldDiff + " gold." + Colors.RED;
-                    hunter.changeGold(goldDiff);
-                    lastBrawlWon = "won";
-                } else {
-                    printMessage += "That'll teach you to go lookin' fer trouble in MY town! Now pay up!";
-                    printMessage += "\nYou lost the brawl and pay " + goldDiff + " gold.";
-                    hunter.changeGold(-goldDiff);
-                    lastBrawlWon = "lost";
+                    printMessage = brawlMessage(BRAWL_WON, goldDiff);
                 }
+                hunter.changeGold(goldDiff);
+                lastBrawlWon = "won";
+                session.getMetrics().brawl(true, goldDiff);
+                session.getTrace().brawl(true);
+            } else {
+                printMessage = brawlMessage(BRAWL_LOST, goldDiff);
+                hunter.changeGold(-goldDiff);
+                lastBrawlWon = "lost";
+                session.getMetrics().brawl(false, goldDiff);
+                session.getTrace().brawl(false);
             }
-            printMessage += Colors.RESET;
         }
     }
 
     public void updateLatestNews() {
         if (lastBrawlWon == null) {
-            printMessage += "";
+            return;
         }   else if (lastBrawlWon.equals("won")) {
             printMessage = "The town carries you with a higher level of respect as you wont the brawl.";
         }   else if (lastBrawlWon.equals("lost")) {
@@ -189,37 +315,31 @@ public class Town {
     public boolean checkGameOver() {
         // Check if game is over due to negative gold
         if (hunter.getGold() < 0) {
-            TreasureHunter.window.addTextToWindow(Colors.RED + "GAME OVER!", Color.red);
-            TreasureHunter.window.addTextToWindow("You lost a brawl and couldn't pay your debt." + Colors.RESET, Color.black);
+            session.getMetrics().gameOver();
+            window.addTextToWindow(Colors.RED + "GAME OVER!", TextStyle.RED);
+            window.addTextToWindow("You lost a brawl and couldn't pay your debt." + Colors.RESET, TextStyle.PLAIN);
             return true;
         }
         return false;
     }
     public String infoString() {
-        return "This nice little town is surrounded by " + terrain.getTerrainName() + ".";
+        World world = session.getWorld();
+        if (world != null) {
+            int town = session.getWorldTown();
+            return "This is town " + town + " of " + world.getTownCount() + ", with "
+                    + (world.getLastRoad(town) - world.getFirstRoad(town)) + " road(s) out of it.";
+        }
+        return terrain.getType().getTownInfo();
     }
 
     /**
      * Determines the surrounding terrain for a town, and the item needed in order to cross that terrain.
      *
-     * @return A Terrain object.
+     * @param terrainRoll A random number from 0 up to (but not including) the number of terrain types.
+     * @return The shared Terrain object for that type.
      */
-    private Terrain getNewTerrain() {
-        int rnd = (int) (Math.random() * 6) + 1 ; //changed the random calculation to be easier to change
-        switch (rnd) {
-            case 1:
-                return new Terrain("Mountains", "Rope");
-            case 2:
-                return new Terrain("Ocean", "Boat");
-            case 3:
-                return new Terrain("Plains", "Horse");
-            case 4:
-                return new Terrain("Desert", "Water");
-            case 5:
-                return new Terrain("Jungle", "Machete");
-            default:
-                return new Terrain("Marsh", "Boots");
-        }
+    private Terrain getNewTerrain(int terrainRoll) {
+        return Terrain.of(TerrainType.VALUES[terrainRoll]);
     }
 
     /**
@@ -228,40 +348,59 @@ public class Town {
      * @return true if the item broke.
      */
     private boolean checkItemBreak() {
-        if (TreasureHunter.isEasyMode()){
+        if (rules.getItemBreakChance() <= 0) {
             return (false);
         }
-        double rand = Math.random();
-        return (rand < 0.5);
-
-    }
+        double rand = random.nextDouble();
+        return (rand < rules.getItemBreakChance());
 
-    private String breakItem(String item) {
-        switch (item) {
-            case "water":
-                return "Seems like you drank the last drop of your water. Should've bought more!";
-            case "rope":
-                return Colors.RED + "SNAP!" + Colors.RESET + "Looks like your rope finally gave out. Better restock!";
-            case "machete":
-                return "You accidentally dropped your machete into a cavern. Looks like you'll need another one!";
-            case "horse":
-                return "You got cornered by a pack of hyenas. You escaped with your life...but not your horse :(";
-            case "boat":
-                return "Just as you reach ashore, you crash into a pile of rocks. Looks like this boat wont be sailing the open seas anymore.";
-            case "boots":
-                return "The soles of your boots gave out and its almost as if you dont even have boots on. Get a new pair!!!";
-            default:
-                return "";
-        }
     }
 
     private void digResult(boolean struckGold) {
         if (struckGold) {
-            int goldAmt  = (int) (Math.random() * 20) + 1;
-            TreasureHunter.window.addTextToWindow("You dug up " + Colors.formatGold(goldAmt + " gold!"), Color.black);
+            int goldAmt  = random.nextInt(rules.getMaxDigGold()) + 1;
+            window.addTextToWindow("You dug up " + Colors.formatGold(goldAmt + " gold!"), TextStyle.PLAIN);
             hunter.changeGold(goldAmt);
+            session.getMetrics().dig(goldAmt);
+            session.getTrace().dug();
         }   else {
-            TreasureHunter.window.addTextToWindow("You dug but found only dirt.", Color.black);
+            window.addTextToWindow("You dug but found only dirt.", TextStyle.PLAIN);
+            session.getMetrics().dig(0);
+            session.getTrace().dug();
+        }
+    }
+
+    /**
+     * Builds the message for every amount of gold a brawl is usually won or lost for.
+     *
+     * @param taunt What the other brawler says.
+     * @param won Whether these are the messages for winning.
+     * @return The messages, indexed by gold (index 0 is unused).
+     */
+    private static String[] brawlMessages(String taunt, boolean won) {
+        String[] messages = new String[PREBUILT_BRAWL_GOLD + 2];
+        // the last slot holds the message with no gold in it yet, for brawls over more than was prebuilt
+        messages[PREBUILT_BRAWL_GOLD + 1] = won ? TROUBLE + taunt + Colors.YELLOW + "\nYou won the brawl and receive "
+                : TROUBLE + taunt + "\nYou lost the brawl and pay ";
+        for (int gold = 1; gold <= PREBUILT_BRAWL_GOLD; gold++) {
+            if (won) {
+                messages[gold] = messages[PREBUILT_BRAWL_GOLD + 1] + gold + " gold." + Colors.RED + Colors.RESET;
+            } else {
+                messages[gold] = messages[PREBUILT_BRAWL_GOLD + 1] + gold + " gold." + Colors.RESET;
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * @param messages Messages built by brawlMessages().
+     * @param gold The gold that changed hands.
+     * @return The message for that much gold, only building it if the rules allow brawls for more than was prebuilt.
+     */
+    private static String brawlMessage(String[] messages, int gold) {
+        if (gold <= PREBUILT_BRAWL_GOLD) {
+            return messages[gold];
         }
+        return messages[PREBUILT_BRAWL_GOLD + 1] + gold + " gold." + Colors.RESET;
     }
-}
\ No newline at end of file
+}
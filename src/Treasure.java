@@ -0,0 +1,57 @@
+/**
+ * The treasures a town can hide. Dust counts as finding nothing.<p>
+ * Each treasure owns one bit, so everything a hunter has found fits in a single int.
+ */
+public enum Treasure {
+    CROWN("crown"),
+    TROPHY("trophy"),
+    GEM("gem"),
+    DUST("dust");
+
+    // every treasure in ordinal order, so lookups don't copy values() each time
+    public static final Treasure[] VALUES = values();
+
+    // the bits a hunter needs to win
+    public static final int ALL_TREASURES = CROWN.getBit() | TROPHY.getBit() | GEM.getBit();
+
+    // instance variables
+    private final String treasureName;
+    private final int bit;
+
+    Treasure(String treasureName) {
+        this.treasureName = treasureName;
+        this.bit = 1 << ordinal();
+    }
+
+    public String getName() {
+        return treasureName;
+    }
+
+    /**
+     * @return This treasure's bit in a treasure bit set.
+     */
+    public int getBit() {
+        return bit;
+    }
+
+    /**
+     * Finds the treasure with the given name.
+     *
+     * @param name The lower case treasure name.
+     * @return The treasure, or null if there is none with that name.
+     */
+    public static Treasure forName(String name) {
+        switch (name) {
+            case "crown":
+                return CROWN;
+            case "trophy":
+                return TROPHY;
+            case "gem":
+                return GEM;
+            case "dust":
+                return DUST;
+            default:
+                return null;
+        }
+    }
+}
@@ -1,5 +1,6 @@
-import java.awt.*;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 
 /**
  * This class is responsible for controlling the Treasure Hunter game.<p>
@@ -10,106 +11,122 @@ import java.util.Scanner;
  */
 
 public class TreasureHunter {
-    // static variables
-    private static final Scanner SCANNER = new Scanner(System.in);
-
     // instance variables
+    private final GameSession session;
+    private final GameOutput window;
     private Town currentTown;
     private Hunter hunter;
     private Shop shop;
-    private boolean hardMode;
-    private static boolean easyMode;
-    private static boolean samuraiMode;
-    public static OutputWindow window = new OutputWindow();
-
 
     /**
-     * Constructs the Treasure Hunter game.
+     * Constructs the Treasure Hunter game, reading from the keyboard and showing everything in an OutputWindow.
      */
     public TreasureHunter() {
+        this(new GameSession(ReadAheadInput.fromStdin(), new OutputWindow()));
+    }
+
+    /**
+     * Constructs the Treasure Hunter game on top of an existing session.
+     *
+     * @param session The session that supplies input and output and keeps the game's state.
+     */
+    public TreasureHunter(GameSession session) {
+        this.session = session;
+        this.window = session.getOutput();
         // these will be initialized in the play method
         currentTown = null;
         hunter = null;
-        hardMode = false;
-        easyMode = false;
-    }
-
-    public static boolean isEasyMode(){
-        return (easyMode);
     }
 
-    public static boolean isSamuraiMode(){
-        return samuraiMode;
+    public GameSession getSession() {
+        return session;
     }
 
     /**
      * Starts the game; this is the only public method
      */
     public void play() {
+        session.getMetrics().gameStarted();
         welcomePlayer();
         enterTown();
+        session.getTrace().started();
         showMenu();
+        session.getTrace().finished();
+        recordScore();
+        window.flush();
+    }
+
+    /**
+     * Carries on a game whose hunter and town have already been loaded into the session, such as from a save file.
+     * It counts as a game started in the metrics, since its win or game over will be counted too.
+     */
+    public void resume() {
+        session.getMetrics().gameStarted();
+        hunter = session.getHunter();
+        currentTown = session.getCurrentTown();
+        shop = currentTown.getShop();
+        currentTown.hunterArrives(hunter);
+        session.getTrace().started();
+        showMenu();
+        session.getTrace().finished();
+        recordScore();
+        window.flush();
     }
     /**
      * Creates a hunter object at the beginning of the game and populates the class member variable with it.
      */
     private void welcomePlayer() {
-        window.addTextToWindow("Welcome to TREASURE HUNTER!", Color.black);
-        window.addTextToWindow("Going hunting for the big treasure, eh?",Color.black);
-        window.addTextToWindow("What's your name, Hunter?", Color.black);
-        String name = SCANNER.nextLine().toLowerCase();
-        window.addTextToWindow("Welcome " + name + "!", Color.black);
-        Color orange = new Color(240, 80, 20); // RGB!
-        window.addTextToWindow("Which mode? (Easy[e], Normal [n], or Hard [h]): ", orange);
+        window.addTextToWindow("Welcome to TREASURE HUNTER!", TextStyle.PLAIN);
+        window.addTextToWindow("Going hunting for the big treasure, eh?",TextStyle.PLAIN);
+        window.addTextToWindow("What's your name, Hunter?", TextStyle.PLAIN);
+        String name = session.nextLine();
+        window.addTextToWindow("Welcome " + name + "!", TextStyle.PLAIN);
+        window.addTextToWindow("Which mode? (Easy[e], Normal [n], or Hard [h]): ", TextStyle.ORANGE);
         
 
         // set hunter instance variable
-        hunter = new Hunter(name, 20);
-        shop =  new Shop(100); //set to 100 for now
-
-        String hard = SCANNER.nextLine().toLowerCase();
-        if (hard.equals("h")) {
-            hardMode = true;
-        }   else if (hard.equals("test")) {
-            shop.setupTestMode(hunter);
+        String hard = session.nextLine();
+        // the mode decides the rules (starting gold included) and samurai mode changes the size of the kit,
+        // so it has to be known before the hunter is made
+        if (hard.equals("s")) {
+            session.setSamuraiMode(true);
+        }   else if (hard.equals("h") || hard.equals("test lose")) {
+            session.setHardMode(true); // Higher chance of losing brawls
         }   else if (hard.equals("e")) {
-            easyMode = true;
-            hunter.changeGold(20);
+            session.setEasyMode(true);
+        }
+        hunter = new Hunter(name, session.getRules().getStartingGold(), session);
+        session.setHunter(hunter);
+
+        if (hard.equals("test")) {
+            Shop.setupTestMode(hunter);
         }   else if (hard.equals("test lose")) {
              // Start with low gold for testing
             hunter.changeGold(-15); // Results in 5 gold total
-            hardMode = true; // Higher chance of losing brawls
-        }   else if (hard.equals("s")) {
-            samuraiMode = true;
         }
     }
 
     /**
-     * Creates a new town and adds the Hunter to it.
+     * Creates a new town and adds the Hunter to it.<p>
+     * The first town is made from scratch; after that the same Town and Shop are reset for each new town,
+     * so moving on doesn't leave anything behind for the garbage collector.
      */
     private void enterTown() {
-        double markdown = 0.5;
-        double toughness = 0.4;
-        if (hardMode) {
-            // in hard mode, you get less money back when you sell items
-            markdown = 0.25;
-
-            // and the town is "tougher"
-            toughness = 0.75;
-        }
-        if (easyMode) {
-            markdown = 1;
-        }
-
-        // note that we don't need to access the Shop object
-        // outside of this method, so it isn't necessary to store it as an instance
-        // variable; we can leave it as a local variable
-        Shop shop = new Shop(markdown);
+        // the markdown and toughness depend on the mode, which the session keeps track of
+        double markdown = session.getMarkdown();
+        double toughness = session.getToughness();
 
-        // creating the new Town -- which we need to store as an instance
-        // variable in this class, since we need to access the Town
-        // object in other methods of this class
-        currentTown = new Town(shop, toughness);
+        if (currentTown == null) {
+            // every town's shop works the same way, so they can all be the same Shop
+            shop = new Shop(markdown, session);
+            // creating the new Town -- which we need to store as an instance
+            // variable in this class, since we need to access the Town
+            // object in other methods of this class
+            currentTown = new Town(shop, toughness, session);
+            session.setCurrentTown(currentTown);
+        } else {
+            currentTown.reset(toughness);
+        }
 
         // calling the hunterArrives method, which takes the Hunter
         // as a parameter; note this also could have been done in the
@@ -126,53 +143,171 @@ public class TreasureHunter {
     private void showMenu() {
         String choice = "";
         while (!choice.equals("x") && !currentTown.checkGameOver() && !hunter.checkWin()) {
+            session.nextTurn();
             window.clear();
-            window.addTextToWindow(currentTown.getLatestNews(), Color.black);
-            window.addTextToWindow(hunter.infoString(), Color.black);
-            window.addTextToWindow(currentTown.infoString(), Color.black);
-            window.addTextToWindow("\n(B)uy something at the shop.", Color.black);
-            window.addTextToWindow("(S)ell something at the shop.", Color.black);
-            window.addTextToWindow("(D)ig for gold.", Color.black);
-            window.addTextToWindow("(E)xplore surrounding terrain.", Color.black);
-            window.addTextToWindow("(M)ove on to a different town.", Color.black);
-            window.addTextToWindow("(L)ook for trouble!", Color.black);
-            window.addTextToWindow("Give up the hunt and e(X)it.", Color.black);
-            window.addTextToWindow("(H)unt for treasure.", Color.black);
-            window.addTextToWindow("\nWhat's your next move? ", Color.black);
-            choice = SCANNER.nextLine().toLowerCase();
+            window.addTextToWindow(currentTown.getLatestNews(), TextStyle.PLAIN);
+            window.addTextToWindow(hunter.infoString(), TextStyle.PLAIN);
+            window.addTextToWindow(currentTown.infoString(), TextStyle.PLAIN);
+            window.addTextToWindow("\n(B)uy something at the shop.", TextStyle.PLAIN);
+            window.addTextToWindow("(S)ell something at the shop.", TextStyle.PLAIN);
+            window.addTextToWindow("(D)ig for gold.", TextStyle.PLAIN);
+            window.addTextToWindow("(E)xplore surrounding terrain.", TextStyle.PLAIN);
+            window.addTextToWindow("(M)ove on to a different town.", TextStyle.PLAIN);
+            window.addTextToWindow("(L)ook for trouble!", TextStyle.PLAIN);
+            window.addTextToWindow("Give up the hunt and e(X)it.", TextStyle.PLAIN);
+            window.addTextToWindow("(H)unt for treasure.", TextStyle.PLAIN);
+            if (canSave()) {
+                window.addTextToWindow("Sa(v)e your game.", TextStyle.PLAIN);
+            }
+            window.addTextToWindow("\nWhat's your next move? ", TextStyle.PLAIN);
+            choice = session.nextLine();
             processChoice(choice);
         }
     }
 
     /**
-     * Takes the choice received from the menu and calls the appropriate method to carry out the instructions.
+     * Takes the choice received from the menu and calls the appropriate method to carry out the instructions.<p>
+     * How long the game takes over it is recorded in the session's metrics, not counting any time spent
+     * waiting for the player to answer a question along the way.
      * @param choice The action to process.
      */
-    private void processChoice(String choice) {
+    void processChoice(String choice) {
+        long start = System.nanoTime();
+        long waited = session.getWaitNanos();
+        carryOut(choice);
+        long elapsed = System.nanoTime() - start - (session.getWaitNanos() - waited);
+        session.getMetrics().recordAction(GameMetrics.actionOf(choice), elapsed);
+    }
+
+    private void carryOut(String choice) {
         if (choice.equals("b") || choice.equals("s")) {
             currentTown.enterShop(choice);
         } else if (choice.equals("e")) {
-            window.addTextToWindow(currentTown.getTerrain().infoString(), Color.black);
+            if (session.getWorld() != null) {
+                exploreRoads();
+            } else {
+                window.addTextToWindow(currentTown.getTerrain().infoString(), TextStyle.PLAIN);
+            }
             currentTown.updateLatestNews();
+        } else if (choice.equals("m") && session.getWorld() != null) {
+            moveAlongRoad();
         } else if (choice.equals("m")) {
             if (currentTown.leaveTown()) {
                 // This town is going away so print its news ahead of time.
-                window.addTextToWindow(currentTown.getLatestNews(), Color.black);
+                window.addTextToWindow(currentTown.getLatestNews(), TextStyle.PLAIN);
                 enterTown();
             }
         } else if (choice.equals("l")) {
             currentTown.lookForTrouble();
         } else if (choice.equals("x")) {
-            window.addTextToWindow("Fare thee well, " + hunter.getHunterName() + "!",Color.black);
+            window.addTextToWindow("Fare thee well, " + hunter.getHunterName() + "!",TextStyle.PLAIN);
         } else if (choice.equals("h")) {
             currentTown.huntForTreasure();
             if (hunter.checkWin()) {
-                window.addTextToWindow("Congratulations, you have found the last of the three treasures! You win!!", Color.CYAN);
+                session.getMetrics().gameWon();
+                window.addTextToWindow("Congratulations, you have found the last of the three treasures! You win!!", TextStyle.CYAN);
             }
         } else if (choice.equals("d")) {
             currentTown.digForGold();
+        } else if (choice.equals("v") && canSave()) {
+            saveGame();
         }  else {
-            window.addTextToWindow("Yikes! That's an invalid option! Try again.", Color.red);
+            window.addTextToWindow("Yikes! That's an invalid option! Try again.", TextStyle.RED);
+        }
+    }
+
+    /**
+     * Lists the roads out of the hunter's world town, and the cheapest way from here to the treasures still missing.
+     */
+    private void exploreRoads() {
+        showRoads();
+        Route route = session.getRoutePlanner().plan(session.getWorldTown(), hunter.getKitBits(), hunter.getTreasureBits());
+        if (route == null) {
+            window.addTextToWindow("No road from here leads to every treasure you're missing.", TextStyle.PLAIN);
+        } else {
+            window.addTextToWindow("The map says the cheapest way is " + route.infoString() + ".", TextStyle.CYAN);
+        }
+    }
+
+    /**
+     * Asks which road out of the hunter's world town to take, and takes it if the hunter can cross it.
+     */
+    private void moveAlongRoad() {
+        World world = session.getWorld();
+        int town = session.getWorldTown();
+        int roads = world.getLastRoad(town) - world.getFirstRoad(town);
+        if (roads == 0) {
+            window.addTextToWindow("No roads lead out of this town.", TextStyle.RED);
+            return;
+        }
+        showRoads();
+        window.addTextToWindow("Which road? (1-" + roads + "): ", TextStyle.ORANGE);
+        String answer = session.nextLine();
+        int road;
+        try {
+            road = Integer.parseInt(answer.trim());
+        } catch (NumberFormatException e) {
+            road = 0;
+        }
+        if (road < 1 || road > roads) {
+            window.addTextToWindow("Yikes! There's no road " + answer + " out of this town.", TextStyle.RED);
+            return;
+        }
+        road += world.getFirstRoad(town) - 1;
+        if (currentTown.leaveTown(Terrain.of(world.getRoadTerrain(road)))) {
+            // This town is going away so print its news ahead of time.
+            window.addTextToWindow(currentTown.getLatestNews(), TextStyle.PLAIN);
+            session.setWorldTown(world.getRoadTo(road));
+            enterTown();
+        }
+    }
+
+    /**
+     * Numbers the roads out of the hunter's world town, with where each goes and what it takes to cross.
+     */
+    private void showRoads() {
+        World world = session.getWorld();
+        int town = session.getWorldTown();
+        for (int road = world.getFirstRoad(town); road < world.getLastRoad(town); road++) {
+            TerrainType terrain = world.getRoadTerrain(road);
+            window.addTextToWindow("(" + (road - world.getFirstRoad(town) + 1) + ") To town " + world.getRoadTo(road)
+                    + " across " + terrain.getColoredName() + ", which needs a(n) " + terrain.getNeededItem().getName() + ".", TextStyle.PLAIN);
+        }
+    }
+
+    /**
+     * @return true if the player can save this game: the session has somewhere to save it, and it isn't on a World.
+     */
+    private boolean canSave() {
+        return session.getSaveDirectory() != null && session.getWorld() == null;
+    }
+
+    /**
+     * Puts the finished game on the session's leaderboard, if it has one, and tells the player where it ranks.
+     */
+    private void recordScore() {
+        Leaderboard leaderboard = session.getLeaderboard();
+        if (leaderboard == null) {
+            return;
+        }
+        try {
+            Score score = leaderboard.record(hunter.getName(), session.getMode(), session.getTurns(), hunter.getGold(), hunter.checkWin());
+            window.addTextToWindow("Your game ranks #" + leaderboard.rankOf(score) + " of " + leaderboard.getGames() + " on the leaderboard.", TextStyle.PLAIN);
+        } catch (UncheckedIOException e) {
+            window.addTextToWindow("Your game couldn't be put on the leaderboard: " + e.getCause().getMessage(), TextStyle.RED);
+        }
+    }
+
+    /**
+     * Saves the game to the hunter's save file in the session's save directory.
+     */
+    private void saveGame() {
+        Path file = SaveGame.fileFor(session.getSaveDirectory(), hunter);
+        try {
+            SaveGame.save(session, file);
+            window.addTextToWindow("Your game has been saved to " + file + ".", TextStyle.PLAIN);
+        } catch (IOException e) {
+            window.addTextToWindow("Your game couldn't be saved: " + e.getMessage(), TextStyle.RED);
         }
     }
-}
\ No newline at end of file
+}
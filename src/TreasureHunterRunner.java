@@ -1,6 +1,52 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Starts a game in the Swing window. With --terminal or --script (or --time) the game is handed to
+ * HeadlessRunner instead, which takes the same options and never loads AWT or Swing.
+ * With --rules the game is played by the rules in a file instead of the standard ones, and with --world
+ * the hunter travels the roads of a fixed World built from the given seed.
+ * Run it with: java TreasureHunterRunner [--terminal] [--script file] [--rules file] [--world seed] [--time] [save file]
+ */
 public class TreasureHunterRunner {
-    public static void main(String[] args) {
+    // constants
+    private static final String USAGE = "Run it with: java TreasureHunterRunner [--terminal] [--script file] [--rules file] [--world seed] [--time] [save file]";
+
+    public static void main(String[] args) throws IOException {
+        for (String arg : args) {
+            if (arg.equals("--terminal") || arg.equals("--script") || arg.equals("--time")) {
+                HeadlessRunner.main(args);
+                return;
+            }
+        }
+        Path save = null;
+        World world = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--rules") && i + 1 < args.length) {
+                RuleBook.reload(Path.of(args[++i]));
+            } else if (args[i].equals("--world") && i + 1 < args.length) {
+                world = new World(HeadlessRunner.WORLD_TOWNS, Long.parseLong(args[++i]));
+            } else if (!args[i].startsWith("--") && save == null) {
+                save = Path.of(args[i]);
+            } else {
+                System.err.println(USAGE);
+                return;
+            }
+        }
+        if (world != null && save != null) {
+            System.err.println("A save file doesn't record a world, so it can't be carried on with --world");
+            return;
+        }
         TreasureHunter game = new TreasureHunter();
-        game.play();
+        game.getSession().setWorld(world);
+        // a player at their own keyboard can save, to the directory they started the game in
+        game.getSession().setSaveDirectory(Path.of(""));
+        if (save != null) {
+            // carry on from a save file
+            SaveGame.load(save, game.getSession());
+            game.resume();
+        } else {
+            game.play();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+import java.util.SplittableRandom;
+
+/**
+ * A fixed map of towns joined by roads, where every road crosses one kind of terrain and so needs one item.<p>
+ * The same seed always builds the same world. Everything is kept in flat arrays (roads are stored
+ * compressed-row style: the roads out of town i are firstRoad[i] up to firstRoad[i + 1]), so a world
+ * with a million towns fits in a few tens of megabytes and walking it never chases object pointers.<p>
+ * Every town is joined to one of the few towns made just before it, which keeps the whole world connected,
+ * and gets one more road to a random town nearby so there's more than one way around.
+ * A game can be played on a World (see GameSession.setWorld()), with RoutePlanner suggesting the way to go.
+ */
+public class World {
+    // constants
+    private static final int NEIGHBORHOOD = 16;
+
+    // instance variables
+    private final int towns;
+    private final int[] firstRoad;
+    private final int[] roadTo;
+    private final byte[] roadTerrain; // by TerrainType ordinal
+    private final byte[] treasures; // by Treasure ordinal
+
+    /**
+     * Builds a world.
+     *
+     * @param towns How many towns there are; at least 1.
+     * @param seed Decides the roads, their terrain and the treasure in each town.
+     */
+    public World(int towns, long seed) {
+        if (towns < 1) {
+            throw new IllegalArgumentException("A world needs at least one town");
+        }
+        this.towns = towns;
+        SplittableRandom random = new SplittableRandom(seed);
+        treasures = new byte[towns];
+        for (int town = 0; town < towns; town++) {
+            treasures[town] = (byte) random.nextInt(Treasure.VALUES.length);
+        }
+
+        // pick the roads as pairs, then lay them out by town with a counting sort
+        int pairs = 2 * (towns - 1);
+        int[] from = new int[pairs];
+        int[] to = new int[pairs];
+        byte[] terrain = new byte[pairs];
+        int count = 0;
+        for (int town = 1; town < towns; town++) {
+            int back = Math.min(town, NEIGHBORHOOD);
+            from[count] = town;
+            to[count] = town - 1 - random.nextInt(back);
+            terrain[count++] = (byte) random.nextInt(TerrainType.VALUES.length);
+            int other = town - 1 - random.nextInt(back);
+            if (other != to[count - 1]) {
+                from[count] = town;
+                to[count] = other;
+                terrain[count++] = (byte) random.nextInt(TerrainType.VALUES.length);
+            }
+        }
+        firstRoad = new int[towns + 1];
+        for (int i = 0; i < count; i++) {
+            firstRoad[from[i] + 1]++;
+            firstRoad[to[i] + 1]++;
+        }
+        for (int town = 0; town < towns; town++) {
+            firstRoad[town + 1] += firstRoad[town];
+        }
+        int[] next = firstRoad.clone();
+        roadTo = new int[2 * count];
+        roadTerrain = new byte[2 * count];
+        for (int i = 0; i < count; i++) {
+            roadTo[next[from[i]]] = to[i];
+            roadTerrain[next[from[i]]++] = terrain[i];
+            roadTo[next[to[i]]] = from[i];
+            roadTerrain[next[to[i]]++] = terrain[i];
+        }
+    }
+
+    /**
+     * @return How many towns there are; towns are numbered from 0.
+     */
+    public int getTownCount() {
+        return towns;
+    }
+
+    /**
+     * @return How many one-way roads there are (every road is counted once in each direction).
+     */
+    public int getRoadCount() {
+        return roadTo.length;
+    }
+
+    /**
+     * @param town A town.
+     * @return Where that town's roads start; use with getLastRoad(), getRoadTo() and getRoadTerrain().
+     */
+    public int getFirstRoad(int town) {
+        return firstRoad[town];
+    }
+
+    /**
+     * @param town A town.
+     * @return One past that town's last road.
+     */
+    public int getLastRoad(int town) {
+        return firstRoad[town + 1];
+    }
+
+    /**
+     * @param road A road number.
+     * @return The town the road leads to.
+     */
+    public int getRoadTo(int road) {
+        return roadTo[road];
+    }
+
+    /**
+     * @param road A road number.
+     * @return The terrain the road crosses.
+     */
+    public TerrainType getRoadTerrain(int road) {
+        return TerrainType.VALUES[roadTerrain[road]];
+    }
+
+    /**
+     * @param town A town.
+     * @return The treasure buried there (which may just be dust).
+     */
+    public Treasure getTreasure(int town) {
+        return Treasure.VALUES[treasures[town]];
+    }
+}